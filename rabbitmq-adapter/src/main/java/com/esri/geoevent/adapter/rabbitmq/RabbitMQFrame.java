@@ -0,0 +1,85 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.adapter.rabbitmq;
+
+// Compact binary GeoEvent frame, one event per frame:
+//   'G' 'F' version | int schema fingerprint | definition name | definition owner | varint field count | values
+// Every value starts with a type tag so nulls, groups and lists need no schema to skip. Strings are a varint
+// length and UTF-8, integers and dates are zigzag varints, floats and doubles are raw IEEE 754, points are
+// a wkid and raw x, y (and z) doubles, other geometries a wkid and the Esri shape buffer.
+public class RabbitMQFrame
+{
+  static final byte         MAGIC_0    = 'G';
+  static final byte         MAGIC_1    = 'F';
+  static final byte         VERSION    = 1;
+  static final byte         NULL       = 0;
+  static final byte         FALSE      = 1;
+  static final byte         TRUE       = 2;
+  static final byte         SHORT      = 3;
+  static final byte         INTEGER    = 4;
+  static final byte         LONG       = 5;
+  static final byte         FLOAT      = 6;
+  static final byte         DOUBLE     = 7;
+  static final byte         STRING     = 8;
+  static final byte         DATE       = 9;
+  static final byte         POINT      = 10;
+  static final byte         POINT_Z    = 11;
+  static final byte         GEOMETRY   = 12;
+  static final byte         GROUP      = 13;
+  static final byte         LIST       = 14;
+  private final String      definitionName;
+  private final String      definitionOwner;
+  private final int         fingerprint;
+  private final Object[]    values;
+
+  public RabbitMQFrame(String definitionName, String definitionOwner, int fingerprint, Object[] values)
+  {
+    this.definitionName = definitionName;
+    this.definitionOwner = definitionOwner;
+    this.fingerprint = fingerprint;
+    this.values = values;
+  }
+
+  public String getDefinitionName()
+  {
+    return definitionName;
+  }
+
+  public String getDefinitionOwner()
+  {
+    return definitionOwner;
+  }
+
+  public int getFingerprint()
+  {
+    return fingerprint;
+  }
+
+  // Boolean, Short, Integer, Long, Float, Double, String, Date, MapGeometry, Object[] for a group and List for many
+  public Object[] getValues()
+  {
+    return values;
+  }
+}
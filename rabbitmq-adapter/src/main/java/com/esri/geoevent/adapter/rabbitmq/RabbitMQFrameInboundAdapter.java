@@ -0,0 +1,122 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.adapter.rabbitmq;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.esri.ges.adapter.AdapterDefinition;
+import com.esri.ges.adapter.InboundAdapterBase;
+import com.esri.ges.core.component.ComponentException;
+import com.esri.ges.core.geoevent.FieldException;
+import com.esri.ges.core.geoevent.GeoEvent;
+import com.esri.ges.core.geoevent.GeoEventDefinition;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.messaging.MessagingException;
+
+public class RabbitMQFrameInboundAdapter extends InboundAdapterBase
+{
+  private static final BundleLogger LOGGER   = BundleLoggerFactory.getLogger(RabbitMQFrameInboundAdapter.class);
+  // resolved by name and owner, GUIDs differ between the GeoEvent servers on either end of the exchange
+  private final Map<String, Schema> schemas  = new ConcurrentHashMap<String, Schema>();
+  private final Set<String>         reported = ConcurrentHashMap.newKeySet();
+
+  private static class Schema
+  {
+    private final GeoEventDefinition definition;
+    private final int                fingerprint;
+
+    Schema(GeoEventDefinition definition)
+    {
+      this.definition = definition;
+      this.fingerprint = RabbitMQFrameMapper.fingerprint(definition);
+    }
+  }
+
+  public RabbitMQFrameInboundAdapter(AdapterDefinition definition) throws ComponentException
+  {
+    super(definition);
+  }
+
+  @Override
+  protected GeoEvent adapt(ByteBuffer buffer, String channelId)
+  {
+    try
+    {
+      RabbitMQFrame frame = RabbitMQFrameReader.read(buffer);
+      Schema schema = resolve(frame);
+      if (schema == null)
+        return null;
+      GeoEvent geoEvent = geoEventCreator.create(schema.definition.getGuid());
+      RabbitMQFrameMapper.populate(geoEvent, schema.definition.getFieldDefinitions(), frame.getValues());
+      return geoEvent;
+    }
+    catch (RabbitMQFrameException e)
+    {
+      // the rest of the delivery cannot be trusted
+      buffer.position(buffer.limit());
+      LOGGER.warn("FRAME_MALFORMED", channelId, e.getMessage());
+    }
+    catch (MessagingException e)
+    {
+      LOGGER.error("GEOEVENT_CREATE_ERROR", e.getMessage());
+    }
+    catch (FieldException e)
+    {
+      LOGGER.warn("FRAME_FIELD_ERROR", e.getMessage());
+    }
+    return null;
+  }
+
+  private Schema resolve(RabbitMQFrame frame)
+  {
+    String key = frame.getDefinitionName() + "/" + frame.getDefinitionOwner();
+    Schema schema = schemas.get(key);
+    // a miss or a changed shape looks the definition up again, it may have been created or edited since
+    if (schema == null || schema.fingerprint != frame.getFingerprint())
+    {
+      GeoEventDefinition definition = geoEventCreator.getGeoEventDefinitionManager().searchGeoEventDefinition(frame.getDefinitionName(), frame.getDefinitionOwner());
+      if (definition == null)
+      {
+        if (reported.add(key))
+          LOGGER.warn("FRAME_DEFINITION_NOT_FOUND", frame.getDefinitionName(), frame.getDefinitionOwner());
+        return null;
+      }
+      schema = new Schema(definition);
+      schemas.put(key, schema);
+      if (schema.fingerprint != frame.getFingerprint())
+      {
+        if (reported.add(key))
+          LOGGER.warn("FRAME_DEFINITION_MISMATCH", frame.getDefinitionName(), frame.getDefinitionOwner());
+        return null;
+      }
+      reported.remove(key);
+    }
+    return schema;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.adapter.rabbitmq;
+
+import com.esri.ges.adapter.AdapterDefinitionBase;
+import com.esri.ges.adapter.AdapterType;
+
+public class RabbitMQFrameInboundAdapterDefinition extends AdapterDefinitionBase
+{
+  public RabbitMQFrameInboundAdapterDefinition()
+  {
+    super(AdapterType.INBOUND);
+  }
+
+  @Override
+  public String getName()
+  {
+    return "RabbitMQFrame";
+  }
+
+  @Override
+  public String getDomain()
+  {
+    return "com.esri.geoevent.adapter.inbound";
+  }
+
+  @Override
+  public String getLabel()
+  {
+    return "${com.esri.geoevent.adapter.rabbitmq-adapter.ADAPTER_IN_LABEL}";
+  }
+
+  @Override
+  public String getDescription()
+  {
+    return "Release ${com.esri.geoevent.adapter.rabbitmq-adapter.PROJECT_RELEASE}: ${com.esri.geoevent.adapter.rabbitmq-adapter.ADAPTER_IN_DESC}";
+  }
+}
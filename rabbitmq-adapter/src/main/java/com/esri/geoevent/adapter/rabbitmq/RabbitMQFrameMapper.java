@@ -0,0 +1,127 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.adapter.rabbitmq;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.esri.ges.core.geoevent.FieldCardinality;
+import com.esri.ges.core.geoevent.FieldDefinition;
+import com.esri.ges.core.geoevent.FieldException;
+import com.esri.ges.core.geoevent.FieldGroup;
+import com.esri.ges.core.geoevent.FieldType;
+import com.esri.ges.core.geoevent.GeoEventDefinition;
+
+// Moves GeoEvent fields in and out of the plain values a RabbitMQFrame carries, groups become Object[]
+final class RabbitMQFrameMapper
+{
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private RabbitMQFrameMapper()
+  {
+  }
+
+  static Object[] toValues(FieldGroup group, List<FieldDefinition> definitions)
+  {
+    Object[] values = new Object[definitions.size()];
+    for (int i = 0; i < values.length; i++)
+    {
+      FieldDefinition definition = definitions.get(i);
+      Object value = group.getField(i);
+      if (value != null && definition.getType() == FieldType.Group)
+      {
+        if (value instanceof List)
+        {
+          List<Object> groups = new ArrayList<Object>();
+          for (Object element : (List<?>) value)
+            groups.add((element != null) ? toValues((FieldGroup) element, definition.getChildren()) : null);
+          value = groups;
+        }
+        else
+          value = toValues((FieldGroup) value, definition.getChildren());
+      }
+      values[i] = value;
+    }
+    return values;
+  }
+
+  static void populate(FieldGroup group, List<FieldDefinition> definitions, Object[] values) throws FieldException
+  {
+    int count = Math.min(definitions.size(), values.length);
+    for (int i = 0; i < count; i++)
+    {
+      FieldDefinition definition = definitions.get(i);
+      Object value = values[i];
+      if (value == null)
+        continue;
+      if (definition.getType() == FieldType.Group)
+      {
+        if (value instanceof List)
+        {
+          List<FieldGroup> groups = new ArrayList<FieldGroup>();
+          for (Object element : (List<?>) value)
+            groups.add((element instanceof Object[]) ? createGroup(group, definition, (Object[]) element) : null);
+          value = groups;
+        }
+        else if (value instanceof Object[])
+          value = createGroup(group, definition, (Object[]) value);
+      }
+      group.setField(i, value);
+    }
+  }
+
+  private static FieldGroup createGroup(FieldGroup parent, FieldDefinition definition, Object[] values) throws FieldException
+  {
+    FieldGroup group = parent.createFieldGroup(definition.getName());
+    populate(group, definition.getChildren(), values);
+    return group;
+  }
+
+  // names, types and cardinalities in order, a receiver with a differently shaped definition of the same name rejects the frame
+  static int fingerprint(GeoEventDefinition definition)
+  {
+    CRC32 crc = new CRC32();
+    update(crc, definition.getFieldDefinitions());
+    return (int) crc.getValue();
+  }
+
+  private static void update(CRC32 crc, List<FieldDefinition> definitions)
+  {
+    for (FieldDefinition definition : definitions)
+    {
+      crc.update(definition.getName().getBytes(UTF8));
+      crc.update(definition.getType().ordinal());
+      crc.update((definition.getCardinality() == FieldCardinality.Many) ? 1 : 0);
+      if (definition.getType() == FieldType.Group && definition.getChildren() != null)
+      {
+        crc.update('(');
+        update(crc, definition.getChildren());
+        crc.update(')');
+      }
+    }
+  }
+}
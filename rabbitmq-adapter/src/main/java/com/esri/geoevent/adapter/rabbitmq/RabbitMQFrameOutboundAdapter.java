@@ -0,0 +1,59 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.adapter.rabbitmq;
+
+import java.nio.ByteBuffer;
+
+import com.esri.ges.adapter.AdapterDefinition;
+import com.esri.ges.adapter.OutboundAdapterBase;
+import com.esri.ges.core.component.ComponentException;
+import com.esri.ges.core.geoevent.GeoEvent;
+import com.esri.ges.core.geoevent.GeoEventDefinition;
+
+public class RabbitMQFrameOutboundAdapter extends OutboundAdapterBase
+{
+  private final RabbitMQFrameWriter writer = new RabbitMQFrameWriter();
+  // events mostly arrive in runs of one definition, so only the last fingerprint is kept
+  private GeoEventDefinition        lastDefinition;
+  private int                       lastFingerprint;
+
+  public RabbitMQFrameOutboundAdapter(AdapterDefinition definition) throws ComponentException
+  {
+    super(definition);
+  }
+
+  @Override
+  public synchronized void receive(GeoEvent geoEvent)
+  {
+    GeoEventDefinition definition = geoEvent.getGeoEventDefinition();
+    if (definition != lastDefinition)
+    {
+      lastFingerprint = RabbitMQFrameMapper.fingerprint(definition);
+      lastDefinition = definition;
+    }
+    byte[] frame = writer.write(definition.getName(), definition.getOwner(), lastFingerprint, RabbitMQFrameMapper.toValues(geoEvent, definition.getFieldDefinitions()));
+    byteListener.receive(ByteBuffer.wrap(frame), geoEvent.getTrackId());
+  }
+}
@@ -0,0 +1,193 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.adapter.rabbitmq;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.esri.core.geometry.Geometry;
+import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.MapGeometry;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+
+// Decodes the RabbitMQFrame at the position of a buffer, leaving the position after it
+public class RabbitMQFrameReader
+{
+  private static final Charset UTF8      = Charset.forName("UTF-8");
+  // guards against a corrupt length turning into a huge allocation
+  private static final int     MAX_COUNT = 1 << 24;
+
+  public static boolean isFrame(ByteBuffer buffer)
+  {
+    int position = buffer.position();
+    return buffer.remaining() >= 3 && buffer.get(position) == RabbitMQFrame.MAGIC_0 && buffer.get(position + 1) == RabbitMQFrame.MAGIC_1;
+  }
+
+  public static RabbitMQFrame read(ByteBuffer buffer) throws RabbitMQFrameException
+  {
+    if (!isFrame(buffer))
+      throw new RabbitMQFrameException("not a GeoEvent frame");
+    try
+    {
+      buffer.position(buffer.position() + 2);
+      byte version = buffer.get();
+      if (version != RabbitMQFrame.VERSION)
+        throw new RabbitMQFrameException("unsupported frame version " + version);
+      int fingerprint = buffer.getInt();
+      String name = readString(buffer);
+      String owner = readString(buffer);
+      return new RabbitMQFrame(name, owner, fingerprint, readValues(buffer));
+    }
+    catch (BufferUnderflowException e)
+    {
+      throw new RabbitMQFrameException("truncated frame");
+    }
+    catch (IllegalArgumentException e)
+    {
+      throw new RabbitMQFrameException("corrupt frame: " + e.getMessage());
+    }
+  }
+
+  private static Object[] readValues(ByteBuffer buffer) throws RabbitMQFrameException
+  {
+    Object[] values = new Object[readCount(buffer)];
+    for (int i = 0; i < values.length; i++)
+      values[i] = readValue(buffer);
+    return values;
+  }
+
+  private static Object readValue(ByteBuffer buffer) throws RabbitMQFrameException
+  {
+    byte tag = buffer.get();
+    switch (tag)
+    {
+      case RabbitMQFrame.NULL:
+        return null;
+      case RabbitMQFrame.FALSE:
+        return Boolean.FALSE;
+      case RabbitMQFrame.TRUE:
+        return Boolean.TRUE;
+      case RabbitMQFrame.SHORT:
+        return (short) unzigzag(readVarint(buffer));
+      case RabbitMQFrame.INTEGER:
+        return (int) unzigzag(readVarint(buffer));
+      case RabbitMQFrame.LONG:
+        return unzigzag(readVarint(buffer));
+      case RabbitMQFrame.FLOAT:
+        return Float.intBitsToFloat(buffer.getInt());
+      case RabbitMQFrame.DOUBLE:
+        return Double.longBitsToDouble(buffer.getLong());
+      case RabbitMQFrame.STRING:
+        return readString(buffer);
+      case RabbitMQFrame.DATE:
+        return new Date(unzigzag(readVarint(buffer)));
+      case RabbitMQFrame.POINT:
+      case RabbitMQFrame.POINT_Z:
+      {
+        SpatialReference spatialReference = spatialReference(readVarint(buffer));
+        double x = Double.longBitsToDouble(buffer.getLong());
+        double y = Double.longBitsToDouble(buffer.getLong());
+        Point point = (tag == RabbitMQFrame.POINT_Z) ? new Point(x, y, Double.longBitsToDouble(buffer.getLong())) : new Point(x, y);
+        return new MapGeometry(point, spatialReference);
+      }
+      case RabbitMQFrame.GEOMETRY:
+      {
+        SpatialReference spatialReference = spatialReference(readVarint(buffer));
+        byte[] shape = new byte[readCount(buffer)];
+        buffer.get(shape);
+        return new MapGeometry(GeometryEngine.geometryFromEsriShape(shape, Geometry.Type.Unknown), spatialReference);
+      }
+      case RabbitMQFrame.GROUP:
+        return readValues(buffer);
+      case RabbitMQFrame.LIST:
+      {
+        int count = readCount(buffer);
+        List<Object> list = new ArrayList<Object>(count);
+        for (int i = 0; i < count; i++)
+          list.add(readValue(buffer));
+        return list;
+      }
+      default:
+        throw new RabbitMQFrameException("unknown value tag " + tag);
+    }
+  }
+
+  private static SpatialReference spatialReference(long wkid)
+  {
+    return (wkid > 0) ? SpatialReference.create((int) wkid) : null;
+  }
+
+  private static String readString(ByteBuffer buffer) throws RabbitMQFrameException
+  {
+    int length = readCount(buffer);
+    if (length == 0)
+      return null;
+    length--;
+    if (length > buffer.remaining())
+      throw new BufferUnderflowException();
+    String value;
+    if (buffer.hasArray())
+      value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF8);
+    else
+    {
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, UTF8);
+    }
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+  private static int readCount(ByteBuffer buffer) throws RabbitMQFrameException
+  {
+    long count = readVarint(buffer);
+    if (count < 0 || count > MAX_COUNT || count > buffer.remaining() + 1)
+      throw new RabbitMQFrameException("corrupt length " + count);
+    return (int) count;
+  }
+
+  private static long readVarint(ByteBuffer buffer) throws RabbitMQFrameException
+  {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7)
+    {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return value;
+    }
+    throw new RabbitMQFrameException("varint longer than 64 bits");
+  }
+
+  private static long unzigzag(long value)
+  {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
@@ -0,0 +1,228 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.adapter.rabbitmq;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.esri.core.geometry.Geometry;
+import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.MapGeometry;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.VertexDescription;
+
+// Encodes RabbitMQFrames into a buffer that is reused from one frame to the next, not thread safe
+public class RabbitMQFrameWriter
+{
+  private static final Charset UTF8   = Charset.forName("UTF-8");
+  private byte[]               buffer;
+  private int                  length;
+
+  public RabbitMQFrameWriter()
+  {
+    this(256);
+  }
+
+  public RabbitMQFrameWriter(int initialCapacity)
+  {
+    buffer = new byte[Math.max(16, initialCapacity)];
+  }
+
+  // the frame is copied out because the outbound transport publishes the whole backing array of the buffer it gets
+  public byte[] write(String definitionName, String definitionOwner, int fingerprint, Object[] values)
+  {
+    length = 0;
+    writeByte(RabbitMQFrame.MAGIC_0);
+    writeByte(RabbitMQFrame.MAGIC_1);
+    writeByte(RabbitMQFrame.VERSION);
+    writeInt(fingerprint);
+    writeString(definitionName);
+    writeString(definitionOwner);
+    writeValues(values);
+    return Arrays.copyOf(buffer, length);
+  }
+
+  private void writeValues(Object[] values)
+  {
+    writeVarint(values.length);
+    for (Object value : values)
+      writeValue(value);
+  }
+
+  private void writeValue(Object value)
+  {
+    if (value == null)
+      writeByte(RabbitMQFrame.NULL);
+    else if (value instanceof Boolean)
+      writeByte(((Boolean) value) ? RabbitMQFrame.TRUE : RabbitMQFrame.FALSE);
+    else if (value instanceof Short)
+    {
+      writeByte(RabbitMQFrame.SHORT);
+      writeVarint(zigzag((Short) value));
+    }
+    else if (value instanceof Integer)
+    {
+      writeByte(RabbitMQFrame.INTEGER);
+      writeVarint(zigzag((Integer) value));
+    }
+    else if (value instanceof Long)
+    {
+      writeByte(RabbitMQFrame.LONG);
+      writeVarint(zigzag((Long) value));
+    }
+    else if (value instanceof Float)
+    {
+      writeByte(RabbitMQFrame.FLOAT);
+      writeInt(Float.floatToIntBits((Float) value));
+    }
+    else if (value instanceof Double)
+    {
+      writeByte(RabbitMQFrame.DOUBLE);
+      writeLong(Double.doubleToLongBits((Double) value));
+    }
+    else if (value instanceof String)
+    {
+      writeByte(RabbitMQFrame.STRING);
+      writeString((String) value);
+    }
+    else if (value instanceof Date)
+    {
+      writeByte(RabbitMQFrame.DATE);
+      writeVarint(zigzag(((Date) value).getTime()));
+    }
+    else if (value instanceof MapGeometry)
+      writeGeometry((MapGeometry) value);
+    else if (value instanceof Object[])
+    {
+      writeByte(RabbitMQFrame.GROUP);
+      writeValues((Object[]) value);
+    }
+    else if (value instanceof List)
+    {
+      List<?> list = (List<?>) value;
+      writeByte(RabbitMQFrame.LIST);
+      writeVarint(list.size());
+      for (Object element : list)
+        writeValue(element);
+    }
+    else
+    {
+      // anything else the GeoEvent model does not define travels as text
+      writeByte(RabbitMQFrame.STRING);
+      writeString(value.toString());
+    }
+  }
+
+  private void writeGeometry(MapGeometry mapGeometry)
+  {
+    Geometry geometry = mapGeometry.getGeometry();
+    int wkid = (mapGeometry.getSpatialReference() != null) ? mapGeometry.getSpatialReference().getID() : 0;
+    if (geometry instanceof Point && !geometry.isEmpty())
+    {
+      // the common case skips the shape buffer, a point is just its coordinates
+      Point point = (Point) geometry;
+      boolean hasZ = point.hasAttribute(VertexDescription.Semantics.Z);
+      writeByte(hasZ ? RabbitMQFrame.POINT_Z : RabbitMQFrame.POINT);
+      writeVarint(wkid);
+      writeLong(Double.doubleToLongBits(point.getX()));
+      writeLong(Double.doubleToLongBits(point.getY()));
+      if (hasZ)
+        writeLong(Double.doubleToLongBits(point.getZ()));
+    }
+    else
+    {
+      byte[] shape = GeometryEngine.geometryToEsriShape(geometry);
+      writeByte(RabbitMQFrame.GEOMETRY);
+      writeVarint(wkid);
+      writeVarint(shape.length);
+      writeBytes(shape, shape.length);
+    }
+  }
+
+  // the length is written plus one so that 0 can stand for null
+  private void writeString(String value)
+  {
+    if (value == null)
+    {
+      writeVarint(0);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF8);
+    writeVarint(bytes.length + 1);
+    writeBytes(bytes, bytes.length);
+  }
+
+  private static long zigzag(long value)
+  {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private void writeVarint(long value)
+  {
+    ensure(10);
+    while ((value & ~0x7FL) != 0)
+    {
+      buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[length++] = (byte) value;
+  }
+
+  private void writeByte(byte value)
+  {
+    ensure(1);
+    buffer[length++] = value;
+  }
+
+  private void writeInt(int value)
+  {
+    ensure(4);
+    buffer[length++] = (byte) (value >>> 24);
+    buffer[length++] = (byte) (value >>> 16);
+    buffer[length++] = (byte) (value >>> 8);
+    buffer[length++] = (byte) value;
+  }
+
+  private void writeLong(long value)
+  {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  private void writeBytes(byte[] bytes, int count)
+  {
+    ensure(count);
+    System.arraycopy(bytes, 0, buffer, length, count);
+    length += count;
+  }
+
+  private void ensure(int count)
+  {
+    if (length + count > buffer.length)
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+  }
+}
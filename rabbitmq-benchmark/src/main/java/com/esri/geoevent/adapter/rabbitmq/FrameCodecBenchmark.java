@@ -0,0 +1,146 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.adapter.rabbitmq;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esri.core.geometry.MapGeometry;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+
+// Compares the RabbitMQFrame codec with the delimited text the Text adapter writes and parses for the same
+// track record: id, ISO 8601 time, speed, heading and a point. The text side formats and parses numbers with a
+// locale aware NumberFormat as the Text adapter does when a number formatting language is configured.
+//
+//   java -jar target/benchmarks.jar FrameCodecBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameCodecBenchmark
+{
+  private static final Charset     UTF8 = Charset.forName("UTF-8");
+
+  @Param({"en-US", "de-DE"})
+  private String                   locale;
+
+  private Object[]                 values;
+  private RabbitMQFrameWriter      writer;
+  private byte[]                   frame;
+  private NumberFormat             numberFormat;
+  private SimpleDateFormat         dateFormat;
+  private byte[]                   text;
+
+  @Setup
+  public void setup()
+  {
+    values = new Object[] {"TRK-000042", new Date(1500000000000L), 61.25, 287.5, new MapGeometry(new Point(-117.1956, 34.0564), SpatialReference.create(4326))};
+    writer = new RabbitMQFrameWriter();
+    frame = writer.write("track", "arcgis", 0x5EED, values);
+    numberFormat = NumberFormat.getInstance(Locale.forLanguageTag(locale));
+    numberFormat.setGroupingUsed(false);
+    numberFormat.setMaximumFractionDigits(16);
+    dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+    dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    text = formatText();
+  }
+
+  @Benchmark
+  public byte[] encodeFrame()
+  {
+    return writer.write("track", "arcgis", 0x5EED, values);
+  }
+
+  @Benchmark
+  public RabbitMQFrame decodeFrame() throws RabbitMQFrameException
+  {
+    return RabbitMQFrameReader.read(ByteBuffer.wrap(frame));
+  }
+
+  @Benchmark
+  public byte[] encodeText()
+  {
+    return formatText();
+  }
+
+  @Benchmark
+  public Object[] decodeText()
+  {
+    return parseText(new String(text, UTF8));
+  }
+
+  // the separator is ';' so that a decimal comma does not split a number in two
+  private byte[] formatText()
+  {
+    Point point = (Point) ((MapGeometry) values[4]).getGeometry();
+    StringBuilder builder = new StringBuilder(96);
+    builder.append(values[0]).append(';');
+    builder.append(dateFormat.format((Date) values[1])).append(';');
+    builder.append(numberFormat.format(values[2])).append(';');
+    builder.append(numberFormat.format(values[3])).append(';');
+    builder.append(numberFormat.format(point.getX())).append(';');
+    builder.append(numberFormat.format(point.getY())).append('\n');
+    return builder.toString().getBytes(UTF8);
+  }
+
+  private Object[] parseText(String line)
+  {
+    String[] fields = line.trim().split(";");
+    Object[] result = new Object[5];
+    result[0] = fields[0];
+    result[1] = dateFormat.parse(fields[1], new ParsePosition(0));
+    result[2] = parseDouble(fields[2]);
+    result[3] = parseDouble(fields[3]);
+    result[4] = new MapGeometry(new Point(parseDouble(fields[4]), parseDouble(fields[5])), SpatialReference.create(4326));
+    return result;
+  }
+
+  private double parseDouble(String value)
+  {
+    return numberFormat.parse(value, new ParsePosition(0)).doubleValue();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.Control;
+
+import com.esri.ges.transport.ByteListener;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Envelope;
+
+// Drives RabbitMQQueueingConsumer.handleDelivery -> RabbitMQConsumer.receive -> RabbitMQInboundTransport dispatch
+// into a stub ByteListener, with the client connection thread and the transport thread as one asymmetric group.
+// The "dispatch" rows are the pipeline figures, "deliver" only feeds it and waits while prefetchCount messages are in flight.
+//
+//   java -jar target/benchmarks.jar InboundPipelineBenchmark -prof gc
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InboundPipelineBenchmark
+{
+  @Param({"64", "1024", "16384"})
+  private int                      messageSize;
+
+  @Param({"1", "32", "256"})
+  private int                      prefetchCount;
+
+  private final AtomicInteger      inFlight = new AtomicInteger();
+  private RabbitMQConsumer         consumer;
+  private RabbitMQQueueingConsumer deliveries;
+  private RabbitMQInboundTransport transport;
+  private Envelope                 envelope;
+  private AMQP.BasicProperties     properties;
+  private byte[]                   body;
+
+  @Setup(Level.Trial)
+  public void setup(final Blackhole blackhole) throws Exception
+  {
+    // nothing listens on port 1, the broker monitor fails once and then only retries every few seconds
+    RabbitMQConnectionInfo connectionInfo = new RabbitMQConnectionInfo("127.0.0.1", "1", "/", null, null, "false");
+    RabbitMQExchange exchange = new RabbitMQExchange("benchmark", "direct", "false", "true", "benchmark");
+    RabbitMQQueue queue = new RabbitMQQueue("benchmark", "false", "false", "true");
+    consumer = new RabbitMQConsumer(connectionInfo, exchange, queue);
+    consumer.setPrefetchCount(prefetchCount);
+    consumer.setMetrics(new RabbitMQTransportMetrics("Inbound"));
+    consumer.attach(new RecordingChannel().getChannel());
+    deliveries = consumer.getQueueingConsumer();
+
+    final ByteListener listener = new ByteListener()
+      {
+        @Override
+        public void receive(ByteBuffer buffer, String channelId)
+        {
+          blackhole.consume(buffer);
+          inFlight.decrementAndGet();
+        }
+      };
+    transport = new RabbitMQInboundTransport(new RabbitMQInboundTransportDefinition())
+      {
+        {
+          byteListener = listener;
+        }
+      };
+    transport.attach(consumer);
+
+    envelope = new Envelope(1, false, "benchmark", "benchmark");
+    properties = new AMQP.BasicProperties();
+    body = new byte[messageSize];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+  {
+    consumer.shutdown("");
+  }
+
+  @Benchmark
+  @Group("pipeline")
+  @GroupThreads(1)
+  public void deliver(Control control) throws IOException
+  {
+    // the broker never has more than prefetchCount deliveries outstanding on the consumer
+    while (inFlight.get() >= prefetchCount)
+    {
+      if (control.stopMeasurement)
+        return;
+      Thread.yield();
+    }
+    inFlight.incrementAndGet();
+    deliveries.handleDelivery("benchmark", envelope, properties, body);
+  }
+
+  @Benchmark
+  @Group("pipeline")
+  @GroupThreads(1)
+  public void dispatch() throws RabbitMQTransportException
+  {
+    transport.poll();
+  }
+}
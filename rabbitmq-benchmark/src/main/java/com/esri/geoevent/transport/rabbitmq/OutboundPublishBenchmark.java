@@ -0,0 +1,196 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+// Drives RabbitMQOutboundTransport.receive -> RabbitMQProducer.send -> basicPublish on an in-memory recording channel.
+// The publish1/4/16 variants share one transport to expose contention on the synchronized receive, bufferSlack
+// leaves unused capacity behind the payload as adapters that reuse buffers do, and the copied/payload byte counters
+// show how much more than the payload goes to the channel. With LengthPrefixed framing records are batched by
+// batchSize and lingerMs, the open batches are flushed at the end of every iteration, and records/publishes gives
+// the records per publish. batchSize and lingerMs make no difference with None, narrow the run with -p framing=...
+//
+//   java -jar target/benchmarks.jar OutboundPublishBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutboundPublishBenchmark
+{
+  @Param({"64", "1024", "16384"})
+  private int                       payloadSize;
+
+  @Param({"0", "4096"})
+  private int                       bufferSlack;
+
+  @Param({"false", "true"})
+  private boolean                   publishTimestamp;
+
+  @Param({"None", "LengthPrefixed"})
+  private String                    framing;
+
+  @Param({"10", "100"})
+  private int                       batchSize;
+
+  @Param({"5"})
+  private int                       lingerMs;
+
+  private RecordingChannel          channel;
+  private RabbitMQProducer          producer;
+  private RabbitMQOutboundTransport transport;
+
+  @State(Scope.Thread)
+  public static class Payload
+  {
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup(OutboundPublishBenchmark benchmark)
+    {
+      buffer = ByteBuffer.allocate(benchmark.payloadSize + benchmark.bufferSlack);
+      ((java.nio.Buffer) buffer).limit(benchmark.payloadSize);
+    }
+  }
+
+  // batches are published by whichever thread fills them or by the linger timer, so the first benchmark thread
+  // counts what reached the channel for all of them
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Counters
+  {
+    public long     copiedBytes;
+    public long     payloadBytes;
+    public long     records;
+    public long     publishes;
+    private boolean channelTotals;
+    private long    channelMessages;
+    private long    channelBytes;
+
+    @Setup(Level.Iteration)
+    public void reset(OutboundPublishBenchmark benchmark, ThreadParams thread)
+    {
+      copiedBytes = 0;
+      payloadBytes = 0;
+      records = 0;
+      publishes = 0;
+      channelTotals = thread.getThreadIndex() == 0;
+      channelMessages = benchmark.channel.getMessages();
+      channelBytes = benchmark.channel.getBytes();
+    }
+
+    void count(RecordingChannel channel)
+    {
+      if (!channelTotals)
+        return;
+      long messages = channel.getMessages();
+      long bytes = channel.getBytes();
+      publishes += messages - channelMessages;
+      copiedBytes += bytes - channelBytes;
+      channelMessages = messages;
+      channelBytes = bytes;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception
+  {
+    // nothing listens on port 1, the broker monitor fails once and then only retries every few seconds
+    RabbitMQConnectionInfo connectionInfo = new RabbitMQConnectionInfo("127.0.0.1", "1", "/", null, null, "false");
+    RabbitMQExchange exchange = new RabbitMQExchange("benchmark", "direct", "false", "true", "benchmark");
+    channel = new RecordingChannel();
+    producer = new RabbitMQProducer(connectionInfo, exchange);
+    producer.setMetrics(new RabbitMQTransportMetrics("Outbound"));
+    producer.setPublishTimestamp(publishTimestamp);
+    producer.attach(channel.getChannel());
+    transport = new RabbitMQOutboundTransport(new RabbitMQOutboundTransportDefinition());
+    transport.attach(producer);
+    transport.setFraming(framing);
+    transport.setBatchSize(batchSize);
+    transport.setBatchLinger(lingerMs);
+  }
+
+  // records still waiting in a batch are published before the iteration is counted
+  @TearDown(Level.Iteration)
+  public void flush()
+  {
+    transport.flush();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+  {
+    producer.shutdown("");
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void publish1(Payload payload, Counters counters)
+  {
+    publish(payload, counters);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void publish4(Payload payload, Counters counters)
+  {
+    publish(payload, counters);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void publish16(Payload payload, Counters counters)
+  {
+    publish(payload, counters);
+  }
+
+  private void publish(Payload payload, Counters counters)
+  {
+    transport.receive(payload.buffer, "");
+    counters.payloadBytes += payload.buffer.remaining();
+    counters.records++;
+    counters.count(channel);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.rabbitmq.client.Channel;
+
+// in-memory stand-in for a broker channel, publishes are only counted and every other call is a no-op
+public class RecordingChannel implements InvocationHandler
+{
+  private final LongAdder messages = new LongAdder();
+  private final LongAdder bytes    = new LongAdder();
+  private final Channel   channel  = (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), new Class<?>[] {Channel.class}, this);
+
+  public Channel getChannel()
+  {
+    return channel;
+  }
+
+  public long getMessages()
+  {
+    return messages.sum();
+  }
+
+  public long getBytes()
+  {
+    return bytes.sum();
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+  {
+    String name = method.getName();
+    if ("basicPublish".equals(name))
+    {
+      // the body is always the last argument of every basicPublish overload
+      int size = ((byte[]) args[args.length - 1]).length;
+      messages.increment();
+      bytes.add(size);
+      return null;
+    }
+    if ("isOpen".equals(name))
+      return true;
+    if ("getChannelNumber".equals(name))
+      return 1;
+    if ("toString".equals(name))
+      return "RecordingChannel";
+    if ("hashCode".equals(name))
+      return System.identityHashCode(proxy);
+    if ("equals".equals(name))
+      return proxy == args[0];
+    return defaultValue(method.getReturnType());
+  }
+
+  private static Object defaultValue(Class<?> type)
+  {
+    if (type == boolean.class)
+      return false;
+    if (type == int.class)
+      return 0;
+    if (type == long.class)
+      return 0L;
+    if (type == double.class)
+      return 0d;
+    if (type == float.class)
+      return 0f;
+    if (type == short.class)
+      return (short) 0;
+    if (type == byte.class)
+      return (byte) 0;
+    if (type == char.class)
+      return (char) 0;
+    return null;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.esri.geoevent.transport.rabbitmq.RabbitMQCaptureReader;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQCaptureReplay;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQOutboundTransport;
+import com.esri.ges.transport.ByteListener;
+
+// Replays a capture written by an inbound transport with a capture directory set.
+//
+//   java -cp target/harness.jar com.esri.geoevent.transport.rabbitmq.harness.CaptureReplayTool --capture=/data/capture --speed=10
+//   java -cp target/harness.jar com.esri.geoevent.transport.rabbitmq.harness.CaptureReplayTool --capture=/data/capture --speed=1 --target=broker --host=rabbit1 --exchange=replay
+//
+// --speed scales the captured pace, 0 replays flat out. The listener target only counts, which measures how fast
+// the capture can be fed. The broker target publishes through an outbound transport with its own routing key.
+public class CaptureReplayTool
+{
+  public static void main(String[] args) throws Exception
+  {
+    HarnessOptions options = new HarnessOptions(args);
+    String capture = options.getString("capture", null);
+    if (capture == null)
+    {
+      System.err.println("--capture=<directory> is required");
+      System.exit(2);
+    }
+    double speed = Double.parseDouble(options.getString("speed", "1"));
+    String target = options.getString("target", "listener");
+    RabbitMQCaptureReader reader = new RabbitMQCaptureReader(new File(capture), options.getString("prefix", null));
+    RabbitMQCaptureReplay replay = new RabbitMQCaptureReplay(reader, speed);
+    HarnessReport report = new HarnessReport("replay", options.getString("label", ""));
+    Map<String, Object> scenario = report.section("scenario");
+    scenario.put("capture", capture);
+    scenario.put("speed", speed);
+    scenario.put("target", target);
+
+    RabbitMQOutboundTransport out = null;
+    ByteListener listener;
+    if ("broker".equals(target))
+    {
+      String exchange = options.getString("exchange", "replay");
+      Map<String, Object> properties = HarnessTransports.endpointProperties(options.getString("host", "localhost"), options.getInt("port", 5672), exchange);
+      properties.put("username", options.getString("username", EmbeddedBroker.USERNAME));
+      properties.put("password", options.getString("password", EmbeddedBroker.PASSWORD));
+      properties.put("virtualHost", options.getString("virtualHost", EmbeddedBroker.VIRTUAL_HOST));
+      properties.put("routingKey", options.getString("routingKey", exchange));
+      out = HarnessTransports.createOutbound(properties);
+      out.start();
+      if (!HarnessTransports.awaitStarted(out, 60, TimeUnit.SECONDS))
+        throw new IllegalStateException("Outbound transport did not start: " + out.getErrorMessage());
+      final RabbitMQOutboundTransport transport = out;
+      listener = new ByteListener()
+        {
+          @Override
+          public void receive(ByteBuffer buffer, String channelId)
+          {
+            transport.receive(buffer, channelId);
+          }
+        };
+    }
+    else
+    {
+      listener = new ByteListener()
+        {
+          @Override
+          public void receive(ByteBuffer buffer, String channelId)
+          {
+            ;
+          }
+        };
+    }
+    long begin = System.nanoTime();
+    try
+    {
+      replay.replay(listener);
+    }
+    finally
+    {
+      if (out != null)
+      {
+        out.stop();
+        out.shutdown();
+      }
+    }
+    double seconds = (System.nanoTime() - begin) / (double) TimeUnit.SECONDS.toNanos(1);
+    Map<String, Object> results = report.section("results");
+    results.put("records", replay.getRecords());
+    results.put("bytes", replay.getBytes());
+    results.put("elapsedSeconds", seconds);
+    results.put("messagesPerSecond", replay.getRecords() / seconds);
+    results.put("maxLagMillis", TimeUnit.NANOSECONDS.toMillis(replay.getMaxLagNanos()));
+    File file = new File(options.getString("report", "target/replay-report.json"));
+    report.write(file);
+    System.out.print(report.toJson());
+    System.exit(0);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.SystemConfig;
+
+// in-JVM AMQP 0-9-1 broker with an in-memory virtual host, standing in for RabbitMQ
+public class EmbeddedBroker
+{
+  public static final String USERNAME     = "guest";
+  public static final String PASSWORD     = "guest";
+  public static final String VIRTUAL_HOST = "default";
+  private final int          port;
+  private File               workDir;
+  private SystemLauncher     launcher;
+
+  public EmbeddedBroker() throws IOException
+  {
+    this(freePort());
+  }
+
+  public EmbeddedBroker(int port)
+  {
+    this.port = port;
+  }
+
+  public int getPort()
+  {
+    return port;
+  }
+
+  public synchronized void start() throws Exception
+  {
+    workDir = Files.createTempDirectory("rabbitmq-harness").toFile();
+    Map<String, String> context = new HashMap<String, String>();
+    context.put("qpid.amqp_port", String.valueOf(port));
+    context.put("qpid.work_dir", workDir.getAbsolutePath());
+    context.put("qpid.home_dir", workDir.getAbsolutePath());
+    Map<String, Object> attributes = new HashMap<String, Object>();
+    attributes.put(SystemConfig.TYPE, "Memory");
+    attributes.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION, EmbeddedBroker.class.getResource("embedded-broker.json").toExternalForm());
+    attributes.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+    attributes.put(SystemConfig.CONTEXT, context);
+    launcher = new SystemLauncher();
+    launcher.startup(attributes);
+  }
+
+  public synchronized void stop()
+  {
+    if (launcher != null)
+    {
+      launcher.shutdown();
+      launcher = null;
+    }
+    if (workDir != null)
+    {
+      delete(workDir);
+      workDir = null;
+    }
+  }
+
+  private static void delete(File file)
+  {
+    File[] children = file.listFiles();
+    if (children != null)
+      for (File child : children)
+        delete(child);
+    file.delete();
+  }
+
+  public static int freePort() throws IOException
+  {
+    try (ServerSocket socket = new ServerSocket(0))
+    {
+      return socket.getLocalPort();
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// TCP proxy between the transports and the broker that breaks the connections on request
+public class FaultInjectingProxy implements Runnable
+{
+  public enum Fault
+  {
+    // connections reset at once
+    DROP,
+    // nothing forwarded in either direction for the duration, sockets stay open
+    STALL,
+    // peer vanishes without a FIN, bytes are swallowed until the duration ends and the sockets are closed
+    HALF_OPEN,
+    // forwarding throttled to a trickle for the duration
+    SLOW_READ
+  }
+
+  private static final int SLOW_BYTES_PER_SECOND = 2048;
+  private final String     targetHost;
+  private final int        targetPort;
+  private final Set<Link>  links                 = ConcurrentHashMap.newKeySet();
+  private ServerSocket     server;
+  private volatile boolean running;
+  private volatile long    stalledUntil;
+  private volatile long    slowUntil;
+
+  public FaultInjectingProxy(String targetHost, int targetPort)
+  {
+    this.targetHost = targetHost;
+    this.targetPort = targetPort;
+  }
+
+  public synchronized void start() throws IOException
+  {
+    server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    running = true;
+    Thread acceptor = new Thread(this, "proxy-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  public int getPort()
+  {
+    return server.getLocalPort();
+  }
+
+  public int getConnectionCount()
+  {
+    return links.size();
+  }
+
+  public synchronized void stop()
+  {
+    running = false;
+    try
+    {
+      server.close();
+    }
+    catch (IOException e)
+    {
+      ;
+    }
+    for (Link link : links)
+      link.close(true);
+  }
+
+  public void inject(Fault fault, long durationMillis)
+  {
+    long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+    switch (fault)
+    {
+      case DROP:
+        for (Link link : links)
+          link.close(true);
+        break;
+      case STALL:
+        stalledUntil = until;
+        break;
+      case HALF_OPEN:
+        for (Link link : links)
+          link.halfOpenUntil = until;
+        break;
+      case SLOW_READ:
+        slowUntil = until;
+        break;
+    }
+  }
+
+  @Override
+  public void run()
+  {
+    while (running)
+    {
+      Socket client;
+      try
+      {
+        client = server.accept();
+      }
+      catch (IOException e)
+      {
+        // closed
+        continue;
+      }
+      Link link = null;
+      try
+      {
+        Socket upstream = new Socket(targetHost, targetPort);
+        client.setTcpNoDelay(true);
+        upstream.setTcpNoDelay(true);
+        link = new Link(client, upstream);
+        links.add(link);
+        link.start();
+      }
+      catch (IOException e)
+      {
+        // usually the broker refused the connection, the client is reset so it fails at once instead of waiting for a timeout
+        if (link != null)
+          link.close(true);
+        else
+          closeSocket(client, true);
+      }
+    }
+  }
+
+  private class Link
+  {
+    private final Socket  client;
+    private final Socket  upstream;
+    private volatile long halfOpenUntil;
+    private volatile boolean closed;
+
+    Link(Socket client, Socket upstream)
+    {
+      this.client = client;
+      this.upstream = upstream;
+    }
+
+    void start() throws IOException
+    {
+      pump(client.getInputStream(), upstream.getOutputStream(), "proxy-up");
+      pump(upstream.getInputStream(), client.getOutputStream(), "proxy-down");
+    }
+
+    private void pump(final InputStream in, final OutputStream out, String name)
+    {
+      Thread thread = new Thread(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            byte[] buffer = new byte[16 * 1024];
+            try
+            {
+              int read;
+              while ((read = in.read(buffer)) >= 0)
+              {
+                if (!forward(read))
+                  continue;
+                out.write(buffer, 0, read);
+                out.flush();
+              }
+            }
+            catch (IOException e)
+            {
+              ;
+            }
+            catch (InterruptedException e)
+            {
+              ;
+            }
+            close(false);
+          }
+        }, name);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    // waits out stalls and throttling, false when the bytes must be swallowed
+    private boolean forward(int bytes) throws InterruptedException
+    {
+      long halfOpen = halfOpenUntil;
+      if (halfOpen != 0)
+      {
+        if (System.nanoTime() < halfOpen)
+          return false;
+        close(true);
+        return false;
+      }
+      while (System.nanoTime() < stalledUntil)
+        Thread.sleep(10);
+      if (System.nanoTime() < slowUntil)
+        Thread.sleep(Math.max(1, bytes * 1000L / SLOW_BYTES_PER_SECOND));
+      return true;
+    }
+
+    void close(boolean reset)
+    {
+      if (closed)
+        return;
+      closed = true;
+      links.remove(this);
+      closeSocket(client, reset);
+      closeSocket(upstream, reset);
+    }
+  }
+
+  private static void closeSocket(Socket socket, boolean reset)
+  {
+    try
+    {
+      // linger 0 sends a RST instead of a FIN
+      if (reset)
+        socket.setSoLinger(true, 0);
+      socket.close();
+    }
+    catch (IOException e)
+    {
+      ;
+    }
+  }
+}
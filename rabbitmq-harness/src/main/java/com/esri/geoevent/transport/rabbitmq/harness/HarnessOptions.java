@@ -0,0 +1,78 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// --name=value command line options
+public class HarnessOptions
+{
+  private final Map<String, String> values = new HashMap<String, String>();
+
+  public HarnessOptions(String[] args)
+  {
+    for (String arg : args)
+    {
+      if (!arg.startsWith("--"))
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      int separator = arg.indexOf('=');
+      if (separator < 0)
+        values.put(arg.substring(2), "true");
+      else
+        values.put(arg.substring(2, separator), arg.substring(separator + 1));
+    }
+  }
+
+  public String getString(String name, String defaultValue)
+  {
+    String value = values.get(name);
+    return (value != null) ? value : defaultValue;
+  }
+
+  public int getInt(String name, int defaultValue)
+  {
+    String value = values.get(name);
+    return (value != null) ? Integer.parseInt(value) : defaultValue;
+  }
+
+  public long getLong(String name, long defaultValue)
+  {
+    String value = values.get(name);
+    return (value != null) ? Long.parseLong(value) : defaultValue;
+  }
+
+  public int[] getInts(String name, int... defaultValues)
+  {
+    String value = values.get(name);
+    if (value == null)
+      return defaultValues;
+    String[] parts = value.split(",");
+    int[] result = new int[parts.length];
+    for (int i = 0; i < parts.length; i++)
+      result[i] = Integer.parseInt(parts[i].trim());
+    return result;
+  }
+}
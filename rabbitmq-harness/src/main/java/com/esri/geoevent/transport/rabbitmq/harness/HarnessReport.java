@@ -0,0 +1,149 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+// ordered JSON document, written with the same keys on every run so reports of different commits can be diffed
+public class HarnessReport
+{
+  private final Map<String, Object> root = new LinkedHashMap<String, Object>();
+
+  public HarnessReport(String harness, String label)
+  {
+    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    root.put("harness", harness);
+    root.put("label", label);
+    root.put("timestamp", format.format(new Date()));
+    root.put("java", System.getProperty("java.version"));
+    root.put("processors", Runtime.getRuntime().availableProcessors());
+  }
+
+  public Map<String, Object> getRoot()
+  {
+    return root;
+  }
+
+  public Map<String, Object> section(String name)
+  {
+    Map<String, Object> section = new LinkedHashMap<String, Object>();
+    root.put(name, section);
+    return section;
+  }
+
+  public List<Object> list(String name)
+  {
+    List<Object> list = new ArrayList<Object>();
+    root.put(name, list);
+    return list;
+  }
+
+  public void write(File file) throws IOException
+  {
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null)
+      parent.mkdirs();
+    Files.write(file.toPath(), toJson().getBytes(StandardCharsets.UTF_8));
+  }
+
+  public String toJson()
+  {
+    StringBuilder json = new StringBuilder();
+    append(json, root, "");
+    return json.append('\n').toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void append(StringBuilder json, Object value, String indent)
+  {
+    if (value instanceof Map)
+    {
+      Map<String, Object> map = (Map<String, Object>) value;
+      json.append('{');
+      String separator = "\n";
+      for (Map.Entry<String, Object> entry : map.entrySet())
+      {
+        json.append(separator).append(indent).append("  ");
+        appendString(json, entry.getKey());
+        json.append(": ");
+        append(json, entry.getValue(), indent + "  ");
+        separator = ",\n";
+      }
+      json.append(map.isEmpty() ? "" : "\n" + indent).append('}');
+    }
+    else if (value instanceof List)
+    {
+      List<Object> list = (List<Object>) value;
+      json.append('[');
+      String separator = "\n";
+      for (Object item : list)
+      {
+        json.append(separator).append(indent).append("  ");
+        append(json, item, indent + "  ");
+        separator = ",\n";
+      }
+      json.append(list.isEmpty() ? "" : "\n" + indent).append(']');
+    }
+    else if (value instanceof Double || value instanceof Float)
+    {
+      double number = ((Number) value).doubleValue();
+      json.append((Double.isNaN(number) || Double.isInfinite(number)) ? "null" : String.format(Locale.ROOT, "%.3f", number));
+    }
+    else if (value instanceof Number || value instanceof Boolean)
+      json.append(value);
+    else if (value == null)
+      json.append("null");
+    else
+      appendString(json, value.toString());
+  }
+
+  private static void appendString(StringBuilder json, String value)
+  {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++)
+    {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\')
+        json.append('\\').append(c);
+      else if (c < 0x20)
+        json.append(String.format("\\u%04x", (int) c));
+      else
+        json.append(c);
+    }
+    json.append('"');
+  }
+}
@@ -0,0 +1,137 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.esri.geoevent.transport.rabbitmq.RabbitMQInboundTransport;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQInboundTransportDefinition;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQOutboundTransport;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQOutboundTransportDefinition;
+import com.esri.ges.core.component.RunningState;
+import com.esri.ges.core.property.Property;
+import com.esri.ges.core.property.PropertyDefinition;
+import com.esri.ges.transport.ByteListener;
+import com.esri.ges.transport.TransportBase;
+import com.esri.ges.transport.TransportDefinition;
+
+// creates real transports configured from a map, the way GeoEvent Manager would, with a stub adapter behind the inbound side
+public class HarnessTransports
+{
+  private HarnessTransports()
+  {
+  }
+
+  public static Map<String, Object> connectionProperties(String host, int port)
+  {
+    Map<String, Object> properties = new HashMap<String, Object>();
+    properties.put("host", host);
+    properties.put("port", port);
+    properties.put("virtualHost", EmbeddedBroker.VIRTUAL_HOST);
+    properties.put("username", EmbeddedBroker.USERNAME);
+    properties.put("password", EmbeddedBroker.PASSWORD);
+    properties.put("ssl", false);
+    return properties;
+  }
+
+  public static Map<String, Object> endpointProperties(String host, int port, String name)
+  {
+    Map<String, Object> properties = connectionProperties(host, port);
+    properties.put("exchangeName", name);
+    properties.put("exchangeType", "direct");
+    properties.put("exchangeDurability", "Transient");
+    properties.put("exchangeAutoDelete", false);
+    properties.put("routingKey", name);
+    properties.put("queueName", name);
+    properties.put("queueDurability", "Transient");
+    properties.put("queueExclusive", false);
+    properties.put("queueAutoDelete", false);
+    return properties;
+  }
+
+  public static RabbitMQInboundTransport createInbound(final Map<String, Object> properties, final ByteListener listener) throws Exception
+  {
+    final RabbitMQInboundTransportDefinition definition = new RabbitMQInboundTransportDefinition();
+    RabbitMQInboundTransport transport = new RabbitMQInboundTransport(definition)
+      {
+        {
+          byteListener = listener;
+        }
+
+        @Override
+        public Property getProperty(String name)
+        {
+          return property(definition, properties, name);
+        }
+      };
+    transport.afterPropertiesSet();
+    return transport;
+  }
+
+  public static RabbitMQOutboundTransport createOutbound(final Map<String, Object> properties) throws Exception
+  {
+    final RabbitMQOutboundTransportDefinition definition = new RabbitMQOutboundTransportDefinition();
+    RabbitMQOutboundTransport transport = new RabbitMQOutboundTransport(definition)
+      {
+        @Override
+        public Property getProperty(String name)
+        {
+          return property(definition, properties, name);
+        }
+      };
+    transport.afterPropertiesSet();
+    return transport;
+  }
+
+  private static Property property(TransportDefinition definition, Map<String, Object> properties, String name)
+  {
+    PropertyDefinition propertyDefinition = definition.getPropertyDefinitions().get(name);
+    if (propertyDefinition == null)
+      throw new IllegalArgumentException("Unknown property " + name);
+    try
+    {
+      return new Property(propertyDefinition, properties.containsKey(name) ? properties.get(name) : propertyDefinition.getDefaultValue());
+    }
+    catch (Exception e)
+    {
+      throw new IllegalArgumentException("Invalid value for property " + name, e);
+    }
+  }
+
+  // the transports connect in the background and retry, so a start only takes effect once the broker connection is up
+  public static boolean awaitStarted(TransportBase transport, long timeout, TimeUnit unit) throws InterruptedException
+  {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!RunningState.STARTED.equals(transport.getRunningState()))
+    {
+      if (System.nanoTime() > deadline)
+        return false;
+      Thread.sleep(50);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,344 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.esri.geoevent.transport.rabbitmq.RabbitMQConnectionInfo;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQConnectionStatus;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQExchange;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQLatencyHistogram;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQProducer;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQTransportException;
+
+// Synthetic GeoEvent traffic for capacity planning: moving-point tracks formatted as the delimited text records the
+// Text adapter parses, published open-loop through RabbitMQProducer by several publisher threads.
+//
+//   java -cp target/harness.jar com.esri.geoevent.transport.rabbitmq.harness.LoadGenerator --assets=10000 --updateRate=0.5 --threads=4
+//   java -cp target/harness.jar com.esri.geoevent.transport.rabbitmq.harness.LoadGenerator --host=rabbit1 --exchange=tracks --burst=50
+//
+// Without --host an embedded broker is started. Every asset reports --updateRate times per second, --burst records
+// leave back to back sharing one send slot with the mean rate unchanged, --size pads records to that many bytes.
+// Latency is measured from the time a record was due rather than the time it was sent, so a publisher that falls
+// behind shows up as latency instead of silently lowering the offered rate.
+public class LoadGenerator
+{
+  private static final Charset           UTF8        = Charset.forName("UTF-8");
+  private final RabbitMQConnectionInfo   connectionInfo;
+  private final RabbitMQExchange         exchange;
+  private final int                      assets;
+  private final double                   updateRate;
+  private final int                      burst;
+  private final int                      size;
+  private final int                      threads;
+  private final int                      warmup;
+  private final int                      duration;
+  private final RabbitMQLatencyHistogram latency     = new RabbitMQLatencyHistogram();
+  private final RabbitMQLatencyHistogram serviceTime = new RabbitMQLatencyHistogram();
+  private final AtomicLong               sent        = new AtomicLong();
+  private final AtomicLong               failed      = new AtomicLong();
+  private final AtomicLong               disconnected = new AtomicLong();
+  private volatile long                  measureFrom;
+  private volatile long                  measureUntil;
+
+  public LoadGenerator(RabbitMQConnectionInfo connectionInfo, RabbitMQExchange exchange, int assets, double updateRate, int burst, int size, int threads, int warmup, int duration)
+  {
+    this.connectionInfo = connectionInfo;
+    this.exchange = exchange;
+    this.assets = assets;
+    this.updateRate = updateRate;
+    this.burst = Math.max(1, burst);
+    this.size = size;
+    this.threads = Math.max(1, Math.min(threads, assets));
+    this.warmup = warmup;
+    this.duration = duration;
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    HarnessOptions options = new HarnessOptions(args);
+    String host = options.getString("host", null);
+    EmbeddedBroker broker = null;
+    if (host == null)
+    {
+      broker = new EmbeddedBroker();
+      broker.start();
+    }
+    try
+    {
+      String port = String.valueOf((broker != null) ? broker.getPort() : options.getInt("port", 5672));
+      RabbitMQConnectionInfo connectionInfo = new RabbitMQConnectionInfo((host != null) ? host : "localhost", port, options.getString("virtualHost", (broker != null) ? EmbeddedBroker.VIRTUAL_HOST : "/"), options.getString("username", EmbeddedBroker.USERNAME), options.getString("password", EmbeddedBroker.PASSWORD), options.getString("ssl", "false"));
+      String exchangeName = options.getString("exchange", "geoevent.load");
+      RabbitMQExchange exchange = new RabbitMQExchange(exchangeName, options.getString("exchangeType", "direct"), "Transient", "false", options.getString("routingKey", exchangeName));
+      LoadGenerator generator = new LoadGenerator(connectionInfo, exchange, options.getInt("assets", 1000), Double.parseDouble(options.getString("updateRate", "1")), options.getInt("burst", 1), options.getInt("size", 0), options.getInt("threads", 4), options.getInt("warmup", 5), options.getInt("duration", 60));
+      HarnessReport report = new HarnessReport("loadgen", options.getString("label", ""));
+      generator.run(report);
+      File file = new File(options.getString("report", "target/loadgen-report.json"));
+      report.write(file);
+      System.out.print(report.toJson());
+    }
+    finally
+    {
+      if (broker != null)
+        broker.stop();
+    }
+    System.exit(0);
+  }
+
+  public void run(HarnessReport report) throws Exception
+  {
+    List<GeneratorProducer> producers = new ArrayList<GeneratorProducer>();
+    List<Thread> publishers = new ArrayList<Thread>();
+    try
+    {
+      for (int i = 0; i < threads; i++)
+      {
+        GeneratorProducer producer = new GeneratorProducer(connectionInfo, exchange);
+        producers.add(producer);
+        if (!producer.awaitConnected(60, TimeUnit.SECONDS))
+          throw new IllegalStateException("Producer " + i + " did not connect to " + connectionInfo.getHost() + ":" + connectionInfo.getPort());
+      }
+      long begin = System.nanoTime();
+      measureFrom = begin + TimeUnit.SECONDS.toNanos(warmup);
+      measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(duration);
+      for (int i = 0; i < threads; i++)
+      {
+        Thread publisher = new Thread(new Publisher(producers.get(i), i, begin), "loadgen-publisher-" + i);
+        publishers.add(publisher);
+        publisher.start();
+      }
+      for (Thread publisher : publishers)
+        publisher.join();
+
+      Map<String, Object> scenario = report.section("scenario");
+      scenario.put("host", connectionInfo.getHost());
+      scenario.put("exchange", exchange.getName());
+      scenario.put("assets", assets);
+      scenario.put("updateRatePerAsset", updateRate);
+      scenario.put("offeredMessagesPerSecond", assets * updateRate);
+      scenario.put("burst", burst);
+      scenario.put("recordSize", size);
+      scenario.put("threads", threads);
+      scenario.put("warmupSeconds", warmup);
+      scenario.put("durationSeconds", duration);
+      Map<String, Object> results = report.section("results");
+      results.put("sent", sent.get());
+      results.put("failed", failed.get());
+      results.put("droppedWhileDisconnected", disconnected.get());
+      results.put("achievedMessagesPerSecond", sent.get() / (double) duration);
+      Map<String, Object> latencies = report.section("latencyMicros");
+      latencies.put("p50", latency.getPercentileMicros(50));
+      latencies.put("p99", latency.getPercentileMicros(99));
+      latencies.put("p999", latency.getPercentileMicros(99.9));
+      latencies.put("max", latency.getMaxMicros());
+      // time spent inside send alone, what a closed-loop tool would have reported as latency
+      Map<String, Object> service = report.section("serviceTimeMicros");
+      service.put("p50", serviceTime.getPercentileMicros(50));
+      service.put("p99", serviceTime.getPercentileMicros(99));
+      service.put("p999", serviceTime.getPercentileMicros(99.9));
+      service.put("max", serviceTime.getMaxMicros());
+    }
+    finally
+    {
+      for (GeneratorProducer producer : producers)
+        producer.shutdown("");
+    }
+  }
+
+  // each publisher owns every threads-th asset and walks through them round-robin on a fixed schedule
+  private class Publisher implements Runnable
+  {
+    private final GeneratorProducer producer;
+    private final long              begin;
+    private final Track[]           tracks;
+    private final StringBuilder     record = new StringBuilder(256);
+
+    Publisher(GeneratorProducer producer, int index, long begin)
+    {
+      this.producer = producer;
+      this.begin = begin;
+      Random random = new Random(index);
+      List<Track> owned = new ArrayList<Track>();
+      for (int asset = index; asset < assets; asset += threads)
+        owned.add(new Track(asset, random));
+      this.tracks = owned.toArray(new Track[owned.size()]);
+    }
+
+    @Override
+    public void run()
+    {
+      double rate = tracks.length * updateRate;
+      long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+      for (long k = 0;; k++)
+      {
+        // records of one burst share the due time of its first record
+        long due = begin + (k / burst) * burst * interval;
+        if (due >= measureUntil)
+          return;
+        long wait = due - System.nanoTime();
+        if (wait > 0)
+          LockSupport.parkNanos(wait);
+        Track track = tracks[(int) (k % tracks.length)];
+        track.move(interval * tracks.length);
+        byte[] payload = format(track, System.currentTimeMillis());
+        long start = System.nanoTime();
+        if (!producer.isConnected())
+        {
+          if (due >= measureFrom)
+            disconnected.incrementAndGet();
+          continue;
+        }
+        try
+        {
+          producer.send(ByteBuffer.wrap(payload));
+        }
+        catch (RabbitMQTransportException e)
+        {
+          if (due >= measureFrom)
+            failed.incrementAndGet();
+          continue;
+        }
+        long end = System.nanoTime();
+        if (due >= measureFrom)
+        {
+          sent.incrementAndGet();
+          latency.record(end - due);
+          serviceTime.record(end - start);
+        }
+      }
+    }
+
+    // TrackId,Time,Speed,Heading,X,Y then padding to the configured size
+    private byte[] format(Track track, long time)
+    {
+      record.setLength(0);
+      record.append(track.id).append(',').append(time).append(',');
+      record.append(String.format(Locale.ROOT, "%.2f,%.1f,%.6f,%.6f", track.speed, track.heading, track.x, track.y));
+      if (record.length() + 1 < size)
+      {
+        record.append(',');
+        while (record.length() < size)
+          record.append('x');
+      }
+      return record.toString().getBytes(UTF8);
+    }
+  }
+
+  // a point moving at roughly constant speed, changing heading a little on every update
+  private static class Track
+  {
+    private final String id;
+    private final Random random;
+    private double       x;
+    private double       y;
+    private double       speed;
+    private double       heading;
+
+    Track(int asset, Random random)
+    {
+      this.id = String.format("asset-%06d", asset);
+      this.random = random;
+      this.x = -180 + random.nextDouble() * 360;
+      this.y = -80 + random.nextDouble() * 160;
+      this.speed = 5 + random.nextDouble() * 30;
+      this.heading = random.nextDouble() * 360;
+    }
+
+    void move(long elapsedNanos)
+    {
+      heading = (heading + random.nextGaussian() * 5 + 360) % 360;
+      // speed in meters per second, roughly 111 km per degree
+      double distance = speed * elapsedNanos / 1e9 / 111000;
+      double radians = Math.toRadians(heading);
+      x += distance * Math.sin(radians);
+      y += distance * Math.cos(radians);
+      if (x > 180)
+        x -= 360;
+      else if (x < -180)
+        x += 360;
+      if (y > 85 || y < -85)
+      {
+        y = Math.max(-85, Math.min(85, y));
+        heading = (180 - heading + 360) % 360;
+      }
+    }
+  }
+
+  // connects like the outbound transport does, as soon as the broker reports the connection is up
+  private static class GeneratorProducer extends RabbitMQProducer
+  {
+    private boolean connecting;
+
+    GeneratorProducer(RabbitMQConnectionInfo connectionInfo, RabbitMQExchange exchange)
+    {
+      super(connectionInfo, exchange);
+    }
+
+    @Override
+    public synchronized void onStatus(RabbitMQConnectionStatus status, String details)
+    {
+      super.onStatus(status, details);
+      // opening the channel reports CREATED again, the transports ignore it while starting or started and so does this
+      if ((status == RabbitMQConnectionStatus.CREATED || status == RabbitMQConnectionStatus.RECOVERY) && !connecting && !isConnected())
+      {
+        connecting = true;
+        try
+        {
+          connect();
+        }
+        catch (RabbitMQTransportException e)
+        {
+          ;
+        }
+        finally
+        {
+          connecting = false;
+        }
+      }
+    }
+
+    boolean awaitConnected(long timeout, TimeUnit unit) throws InterruptedException
+    {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (!isConnected())
+      {
+        if (System.nanoTime() > deadline)
+          return false;
+        Thread.sleep(50);
+      }
+      return true;
+    }
+  }
+}
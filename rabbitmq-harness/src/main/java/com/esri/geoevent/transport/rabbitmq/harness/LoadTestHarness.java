@@ -0,0 +1,212 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.esri.geoevent.transport.rabbitmq.RabbitMQInboundTransport;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQLatencyHistogram;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQOutboundTransport;
+import com.esri.ges.transport.ByteListener;
+
+// End to end throughput and latency through real inbound and outbound transports against the embedded broker.
+// Each connector is an outbound transport publishing to its own exchange and an inbound transport consuming it.
+//
+//   java -jar target/harness.jar --connectors=4 --rate=1000 --size=1024 --duration=30 --report=target/load.json
+//
+// --rate is messages per second per connector, 0 publishes as fast as the transport accepts.
+public class LoadTestHarness
+{
+  private final int                      connectors;
+  private final int                      rate;
+  private final int                      size;
+  private final int                      warmup;
+  private final int                      duration;
+  private final RabbitMQLatencyHistogram latency  = new RabbitMQLatencyHistogram();
+  private final AtomicLong               sent     = new AtomicLong();
+  private final AtomicLong               received = new AtomicLong();
+  private volatile long                  measureFrom;
+  private volatile long                  measureUntil;
+
+  public LoadTestHarness(int connectors, int rate, int size, int warmup, int duration)
+  {
+    this.connectors = connectors;
+    this.rate = rate;
+    // the first 8 bytes carry the send time
+    this.size = Math.max(8, size);
+    this.warmup = warmup;
+    this.duration = duration;
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    HarnessOptions options = new HarnessOptions(args);
+    LoadTestHarness harness = new LoadTestHarness(options.getInt("connectors", 1), options.getInt("rate", 1000), options.getInt("size", 1024), options.getInt("warmup", 5), options.getInt("duration", 30));
+    HarnessReport report = new HarnessReport("load", options.getString("label", ""));
+    EmbeddedBroker broker = new EmbeddedBroker();
+    broker.start();
+    try
+    {
+      harness.run(broker, report);
+    }
+    finally
+    {
+      broker.stop();
+    }
+    File file = new File(options.getString("report", "target/load-report.json"));
+    report.write(file);
+    System.out.print(report.toJson());
+    System.exit(0);
+  }
+
+  public void run(EmbeddedBroker broker, HarnessReport report) throws Exception
+  {
+    List<RabbitMQInboundTransport> inbound = new ArrayList<RabbitMQInboundTransport>();
+    List<RabbitMQOutboundTransport> outbound = new ArrayList<RabbitMQOutboundTransport>();
+    ByteListener listener = new ByteListener()
+      {
+        @Override
+        public void receive(ByteBuffer buffer, String channelId)
+        {
+          long now = System.nanoTime();
+          long sentAt = buffer.getLong(buffer.position());
+          if (sentAt >= measureFrom && sentAt < measureUntil)
+          {
+            received.incrementAndGet();
+            latency.record(now - sentAt);
+          }
+        }
+      };
+    try
+    {
+      long startupBegin = System.nanoTime();
+      for (int i = 0; i < connectors; i++)
+      {
+        Map<String, Object> properties = HarnessTransports.endpointProperties("localhost", broker.getPort(), "harness." + i);
+        RabbitMQInboundTransport in = HarnessTransports.createInbound(properties, listener);
+        inbound.add(in);
+        in.start();
+        // the queue and binding must exist before anything is published
+        if (!HarnessTransports.awaitStarted(in, 60, TimeUnit.SECONDS))
+          throw new IllegalStateException("Inbound transport " + i + " did not start: " + in.getErrorMessage());
+        RabbitMQOutboundTransport out = HarnessTransports.createOutbound(properties);
+        outbound.add(out);
+        out.start();
+        if (!HarnessTransports.awaitStarted(out, 60, TimeUnit.SECONDS))
+          throw new IllegalStateException("Outbound transport " + i + " did not start: " + out.getErrorMessage());
+      }
+      long startup = System.nanoTime() - startupBegin;
+
+      long begin = System.nanoTime();
+      measureFrom = begin + TimeUnit.SECONDS.toNanos(warmup);
+      measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(duration);
+      List<Thread> publishers = new ArrayList<Thread>();
+      for (int i = 0; i < connectors; i++)
+      {
+        Thread publisher = new Thread(publisher(outbound.get(i)), "harness-publisher-" + i);
+        publishers.add(publisher);
+        publisher.start();
+      }
+      for (Thread publisher : publishers)
+        publisher.join();
+      // wait for the queues to drain
+      long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (received.get() < sent.get() && System.nanoTime() < drainDeadline)
+        Thread.sleep(50);
+
+      Map<String, Object> scenario = report.section("scenario");
+      scenario.put("connectors", connectors);
+      scenario.put("ratePerConnector", rate);
+      scenario.put("messageSize", size);
+      scenario.put("warmupSeconds", warmup);
+      scenario.put("durationSeconds", duration);
+      Map<String, Object> results = report.section("results");
+      results.put("startupMillis", TimeUnit.NANOSECONDS.toMillis(startup));
+      results.put("sent", sent.get());
+      results.put("received", received.get());
+      results.put("lost", Math.max(0, sent.get() - received.get()));
+      results.put("throughputMessagesPerSecond", received.get() / (double) duration);
+      results.put("throughputMegabytesPerSecond", received.get() * (double) size / duration / (1024 * 1024));
+      Map<String, Object> latencies = report.section("latencyMicros");
+      latencies.put("p50", latency.getPercentileMicros(50));
+      latencies.put("p99", latency.getPercentileMicros(99));
+      latencies.put("p999", latency.getPercentileMicros(99.9));
+      latencies.put("max", latency.getMaxMicros());
+    }
+    finally
+    {
+      // GeoEvent stops a transport before shutting it down, the receive loop only ends on stop
+      for (RabbitMQOutboundTransport out : outbound)
+      {
+        out.stop();
+        out.shutdown();
+      }
+      for (RabbitMQInboundTransport in : inbound)
+      {
+        in.stop();
+        in.shutdown();
+      }
+    }
+  }
+
+  private Runnable publisher(final RabbitMQOutboundTransport transport)
+  {
+    return new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          byte[] payload = new byte[size];
+          ByteBuffer buffer = ByteBuffer.wrap(payload);
+          long interval = (rate > 0) ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+          long next = System.nanoTime();
+          while (true)
+          {
+            if (interval > 0)
+            {
+              next += interval;
+              long wait = next - System.nanoTime();
+              if (wait > 0)
+                LockSupport.parkNanos(wait);
+            }
+            long now = System.nanoTime();
+            if (now >= measureUntil)
+              return;
+            buffer.putLong(0, now);
+            transport.receive(buffer, "");
+            if (now >= measureFrom)
+              sent.incrementAndGet();
+          }
+        }
+      };
+  }
+}
@@ -0,0 +1,274 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.esri.geoevent.transport.rabbitmq.RabbitMQInboundTransport;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQOutboundTransport;
+import com.esri.ges.transport.ByteListener;
+
+// Scaling curve of the transports: for each connector count N, starts N inbound and N outbound transports
+// against the embedded broker and records startup time, threads, heap, RSS, idle CPU and saturated throughput.
+//
+//   java -cp target/harness.jar com.esri.geoevent.transport.rabbitmq.harness.ScalabilityHarness --counts=10,100,250,500,1000 --report=target/scale.json
+//
+// The broker runs in the same JVM, so the absolute numbers include it. The baseline taken before the first
+// round is reported and every round also records the transport share relative to it.
+public class ScalabilityHarness
+{
+  private final int        idle;
+  private final int        duration;
+  private final int        size;
+  private final int        publishers;
+  private final AtomicLong received = new AtomicLong();
+  private volatile boolean publishing;
+
+  public ScalabilityHarness(int idle, int duration, int size, int publishers)
+  {
+    this.idle = idle;
+    this.duration = duration;
+    this.size = size;
+    this.publishers = publishers;
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    HarnessOptions options = new HarnessOptions(args);
+    int[] counts = options.getInts("counts", 10, 50, 100, 250, 500, 1000);
+    ScalabilityHarness harness = new ScalabilityHarness(options.getInt("idle", 10), options.getInt("duration", 10), options.getInt("size", 256), options.getInt("publishers", Runtime.getRuntime().availableProcessors()));
+    HarnessReport report = new HarnessReport("scalability", options.getString("label", ""));
+    EmbeddedBroker broker = new EmbeddedBroker();
+    broker.start();
+    try
+    {
+      harness.run(broker, counts, report);
+    }
+    finally
+    {
+      broker.stop();
+    }
+    File file = new File(options.getString("report", "target/scalability-report.json"));
+    report.write(file);
+    System.out.print(report.toJson());
+    System.exit(0);
+  }
+
+  public void run(EmbeddedBroker broker, int[] counts, HarnessReport report) throws Exception
+  {
+    Map<String, Object> scenario = report.section("scenario");
+    scenario.put("idleSeconds", idle);
+    scenario.put("durationSeconds", duration);
+    scenario.put("messageSize", size);
+    scenario.put("publisherThreads", publishers);
+    Map<String, Object> baseline = report.section("baseline");
+    Map<String, Object> base = snapshot();
+    baseline.putAll(base);
+    baseline.put("idleCpuPercent", idleCpu());
+    List<Object> rounds = report.list("rounds");
+    for (int count : counts)
+    {
+      Map<String, Object> round = round(broker, count, base);
+      System.out.println("[scale] " + round);
+      rounds.add(round);
+    }
+  }
+
+  private Map<String, Object> round(EmbeddedBroker broker, int count, Map<String, Object> base) throws Exception
+  {
+    Map<String, Object> round = new LinkedHashMap<String, Object>();
+    round.put("connectors", count);
+    List<RabbitMQInboundTransport> inbound = new ArrayList<RabbitMQInboundTransport>();
+    List<RabbitMQOutboundTransport> outbound = new ArrayList<RabbitMQOutboundTransport>();
+    ByteListener listener = new ByteListener()
+      {
+        @Override
+        public void receive(ByteBuffer buffer, String channelId)
+        {
+          received.incrementAndGet();
+        }
+      };
+    try
+    {
+      // all transports are started together the way GeoEvent starts its inputs and outputs, then awaited
+      long begin = System.nanoTime();
+      for (int i = 0; i < count; i++)
+      {
+        Map<String, Object> properties = HarnessTransports.endpointProperties("localhost", broker.getPort(), "scale." + count + "." + i);
+        RabbitMQInboundTransport in = HarnessTransports.createInbound(properties, listener);
+        inbound.add(in);
+        in.start();
+        RabbitMQOutboundTransport out = HarnessTransports.createOutbound(properties);
+        outbound.add(out);
+        out.start();
+      }
+      long timeout = Math.max(60, count / 5);
+      for (RabbitMQInboundTransport in : inbound)
+        if (!HarnessTransports.awaitStarted(in, timeout, TimeUnit.SECONDS))
+          throw new IllegalStateException("Inbound transport did not start: " + in.getErrorMessage());
+      for (RabbitMQOutboundTransport out : outbound)
+        if (!HarnessTransports.awaitStarted(out, timeout, TimeUnit.SECONDS))
+          throw new IllegalStateException("Outbound transport did not start: " + out.getErrorMessage());
+      round.put("startupMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+
+      Map<String, Object> steady = snapshot();
+      round.putAll(steady);
+      round.put("transportThreads", (Integer) steady.get("threads") - (Integer) base.get("threads"));
+      round.put("transportHeapBytes", (Long) steady.get("heapUsedBytes") - (Long) base.get("heapUsedBytes"));
+      round.put("idleCpuPercent", idleCpu());
+      round.put("throughputMessagesPerSecond", throughput(outbound));
+    }
+    finally
+    {
+      // GeoEvent stops a transport before shutting it down, the receive loop only ends on stop
+      for (RabbitMQOutboundTransport out : outbound)
+      {
+        out.stop();
+        out.shutdown();
+      }
+      for (RabbitMQInboundTransport in : inbound)
+      {
+        in.stop();
+        in.shutdown();
+      }
+    }
+    // threads still alive once everything is shut down point at a leak
+    Thread.sleep(TimeUnit.SECONDS.toMillis(2));
+    round.put("threadsAfterShutdown", ManagementFactory.getThreadMXBean().getThreadCount());
+    return round;
+  }
+
+  private Map<String, Object> snapshot()
+  {
+    System.gc();
+    Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+    snapshot.put("threads", ManagementFactory.getThreadMXBean().getThreadCount());
+    snapshot.put("heapUsedBytes", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    snapshot.put("rssBytes", residentSetSize());
+    return snapshot;
+  }
+
+  // CPU used by the whole process while nothing is published, as a percentage of one core
+  private double idleCpu() throws InterruptedException
+  {
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (!(os instanceof com.sun.management.OperatingSystemMXBean))
+      return -1;
+    com.sun.management.OperatingSystemMXBean bean = (com.sun.management.OperatingSystemMXBean) os;
+    long cpuBefore = bean.getProcessCpuTime();
+    long before = System.nanoTime();
+    Thread.sleep(TimeUnit.SECONDS.toMillis(idle));
+    long cpu = bean.getProcessCpuTime() - cpuBefore;
+    return (cpu < 0) ? -1 : 100.0 * cpu / (System.nanoTime() - before);
+  }
+
+  // a fixed set of publisher threads round-robins over the outbound transports as fast as they accept
+  private double throughput(final List<RabbitMQOutboundTransport> outbound) throws InterruptedException
+  {
+    received.set(0);
+    publishing = true;
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < publishers; i++)
+    {
+      final int first = i;
+      Thread thread = new Thread(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            ByteBuffer buffer = ByteBuffer.wrap(new byte[size]);
+            int next = first;
+            while (publishing)
+            {
+              outbound.get(next % outbound.size()).receive(buffer, "");
+              next += publishers;
+            }
+          }
+        }, "scale-publisher-" + i);
+      threads.add(thread);
+      thread.start();
+    }
+    long begin = System.nanoTime();
+    Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+    long count = received.get();
+    long elapsed = System.nanoTime() - begin;
+    publishing = false;
+    for (Thread thread : threads)
+      thread.join();
+    return count * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+  }
+
+  // VmRSS from /proc, -1 where there is no procfs
+  private static long residentSetSize()
+  {
+    File status = new File("/proc/self/status");
+    if (!status.canRead())
+      return -1;
+    BufferedReader reader = null;
+    try
+    {
+      reader = new BufferedReader(new FileReader(status));
+      String line;
+      while ((line = reader.readLine()) != null)
+        if (line.startsWith("VmRSS:"))
+          return Long.parseLong(line.substring(6).trim().split("\\s+")[0]) * 1024;
+    }
+    catch (IOException e)
+    {
+      ;
+    }
+    catch (NumberFormatException e)
+    {
+      ;
+    }
+    finally
+    {
+      if (reader != null)
+      {
+        try
+        {
+          reader.close();
+        }
+        catch (IOException e)
+        {
+          ;
+        }
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,495 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.esri.geoevent.transport.rabbitmq.RabbitMQInboundTransport;
+import com.esri.geoevent.transport.rabbitmq.RabbitMQOutboundTransport;
+import com.esri.geoevent.transport.rabbitmq.harness.FaultInjectingProxy.Fault;
+import com.esri.ges.transport.ByteListener;
+
+// Soak test of the reconnect path: the transports talk to the embedded broker through a FaultInjectingProxy
+// which breaks their connections on a schedule while traffic flows.
+//
+//   java -cp target/harness.jar com.esri.geoevent.transport.rabbitmq.harness.SoakHarness --hours=4 --faultInterval=120 --report=target/soak.json
+//
+// Every message carries a per connector sequence number and its send time, so the consumers can count
+// duplicates and gaps. Recovery time is measured from the end of a fault until every connector has received
+// a message published after it.
+public class SoakHarness
+{
+  private static final String   DOMAIN                     = "com.esri.geoevent.transport.rabbitmq";
+  // a client of a proxy whose broker is down must fail well within this
+  private static final int      UPSTREAM_DOWN_LIMIT_MILLIS = 2000;
+  private final int             connectors;
+  private final int             rate;
+  private final int             size;
+  private final long            duration;
+  private final int             faultInterval;
+  private final int             faultDuration;
+  private final int             heartbeat;
+  private final int             sampleInterval;
+  private final Fault[]         faults;
+  private final List<Connector> streams                    = new ArrayList<Connector>();
+  private volatile boolean      publishing;
+
+  public SoakHarness(int connectors, int rate, int size, long duration, int faultInterval, int faultDuration, int heartbeat, int sampleInterval, Fault[] faults)
+  {
+    this.connectors = connectors;
+    this.rate = rate;
+    // sequence number and send time
+    this.size = Math.max(16, size);
+    this.duration = duration;
+    this.faultInterval = faultInterval;
+    this.faultDuration = faultDuration;
+    this.heartbeat = heartbeat;
+    this.sampleInterval = sampleInterval;
+    this.faults = faults;
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    HarnessOptions options = new HarnessOptions(args);
+    String[] names = options.getString("faults", "DROP,STALL,HALF_OPEN,SLOW_READ").split(",");
+    Fault[] faults = new Fault[names.length];
+    for (int i = 0; i < names.length; i++)
+      faults[i] = Fault.valueOf(names[i].trim().toUpperCase());
+    // --minutes overrides --hours for short runs
+    long duration = TimeUnit.MINUTES.toSeconds(options.getLong("minutes", TimeUnit.HOURS.toMinutes(options.getLong("hours", 1))));
+    SoakHarness harness = new SoakHarness(options.getInt("connectors", 2), options.getInt("rate", 200), options.getInt("size", 256), duration, options.getInt("faultInterval", 60), options.getInt("faultDuration", 15), options.getInt("heartbeat", 5), options.getInt("sampleInterval", 60), faults);
+    HarnessReport report = new HarnessReport("soak", options.getString("label", ""));
+    EmbeddedBroker broker = new EmbeddedBroker();
+    broker.start();
+    FaultInjectingProxy proxy = new FaultInjectingProxy("localhost", broker.getPort());
+    proxy.start();
+    try
+    {
+      harness.run(proxy, report);
+    }
+    finally
+    {
+      proxy.stop();
+      broker.stop();
+    }
+    File file = new File(options.getString("report", "target/soak-report.json"));
+    report.write(file);
+    System.out.print(report.toJson());
+    System.exit(0);
+  }
+
+  public void run(FaultInjectingProxy proxy, HarnessReport report) throws Exception
+  {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    List<Object> samples = report.list("samples");
+    List<Object> faultResults = report.list("faults");
+    report.section("upstreamDown").putAll(checkUpstreamDown());
+    try
+    {
+      for (int i = 0; i < connectors; i++)
+      {
+        Connector stream = new Connector("soak." + i);
+        streams.add(stream);
+        stream.start(proxy.getPort());
+      }
+      // baseline once the transports and their threads are up
+      System.gc();
+      int threadsBefore = threads.getThreadCount();
+      long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+      publishing = true;
+      List<Thread> publishers = new ArrayList<Thread>();
+      for (Connector stream : streams)
+      {
+        Thread publisher = new Thread(stream.publisher(), "soak-publisher-" + stream.name);
+        publishers.add(publisher);
+        publisher.start();
+      }
+
+      long begin = System.nanoTime();
+      long end = begin + TimeUnit.SECONDS.toNanos(duration);
+      long nextFault = begin + TimeUnit.SECONDS.toNanos(faultInterval);
+      long nextSample = begin;
+      int faultIndex = 0;
+      while (System.nanoTime() < end)
+      {
+        long now = System.nanoTime();
+        if (now >= nextSample)
+        {
+          samples.add(sample(TimeUnit.NANOSECONDS.toSeconds(now - begin), threads, memory, proxy));
+          nextSample += TimeUnit.SECONDS.toNanos(sampleInterval);
+        }
+        if (now >= nextFault)
+        {
+          Fault fault = faults[faultIndex++ % faults.length];
+          nextFault += TimeUnit.SECONDS.toNanos(faultInterval);
+          faultResults.add(inject(proxy, fault, TimeUnit.NANOSECONDS.toSeconds(now - begin), Math.min(nextFault, end)));
+          continue;
+        }
+        Thread.sleep(100);
+      }
+      publishing = false;
+      for (Thread publisher : publishers)
+        publisher.join();
+      // let the queues drain before counting what went missing
+      long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+      while (!drained() && System.nanoTime() < drainDeadline)
+        Thread.sleep(100);
+
+      System.gc();
+      int threadsAfter = threads.getThreadCount();
+      long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+      Map<String, Object> scenario = report.section("scenario");
+      scenario.put("connectors", connectors);
+      scenario.put("ratePerConnector", rate);
+      scenario.put("messageSize", size);
+      scenario.put("durationSeconds", duration);
+      scenario.put("faultIntervalSeconds", faultInterval);
+      scenario.put("faultDurationSeconds", faultDuration);
+      scenario.put("heartbeatSeconds", heartbeat);
+      Map<String, Object> results = report.section("results");
+      long sent = 0, dropped = 0, failed = 0, received = 0, duplicates = 0, lost = 0;
+      for (Connector stream : streams)
+      {
+        sent += stream.sent.get();
+        dropped += stream.dropped();
+        failed += stream.failed.get();
+        received += stream.received();
+        duplicates += stream.duplicates();
+        lost += stream.lost();
+      }
+      results.put("sent", sent);
+      // refused by the outbound transport while it was disconnected, GeoEvent drops these too
+      results.put("droppedWhileDisconnected", dropped);
+      // exceptions thrown out of the outbound transport's receive
+      results.put("publishFailures", failed);
+      results.put("received", received);
+      results.put("duplicates", duplicates);
+      // accepted by the outbound transport but never delivered
+      results.put("lost", lost);
+      Map<String, Object> resources = report.section("resources");
+      resources.put("threadsBefore", threadsBefore);
+      resources.put("threadsAfter", threadsAfter);
+      resources.put("threadGrowth", threadsAfter - threadsBefore);
+      resources.put("peakThreads", threads.getPeakThreadCount());
+      resources.put("heapBeforeBytes", heapBefore);
+      resources.put("heapAfterBytes", heapAfter);
+      resources.put("heapGrowthBytes", heapAfter - heapBefore);
+      List<Object> perConnector = report.list("connectors");
+      for (Connector stream : streams)
+        perConnector.add(stream.summary());
+    }
+    finally
+    {
+      publishing = false;
+      // GeoEvent stops a transport before shutting it down, the receive loop only ends on stop
+      for (Connector stream : streams)
+        stream.shutdown();
+    }
+  }
+
+  // connects through a proxy whose broker is not listening, the proxy has to reset the client rather than leave it to its own timeouts
+  private Map<String, Object> checkUpstreamDown() throws IOException
+  {
+    ServerSocket unused = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    int closedPort = unused.getLocalPort();
+    unused.close();
+    FaultInjectingProxy proxy = new FaultInjectingProxy("localhost", closedPort);
+    proxy.start();
+    Socket socket = new Socket(InetAddress.getLoopbackAddress(), proxy.getPort());
+    long begin = System.nanoTime();
+    String outcome;
+    try
+    {
+      socket.setSoTimeout(UPSTREAM_DOWN_LIMIT_MILLIS);
+      outcome = (socket.getInputStream().read() < 0) ? "closed" : "data";
+    }
+    catch (SocketTimeoutException e)
+    {
+      outcome = "timeout";
+    }
+    catch (IOException e)
+    {
+      outcome = "reset";
+    }
+    finally
+    {
+      socket.close();
+      proxy.stop();
+    }
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+    if (!"reset".equals(outcome))
+      throw new IllegalStateException("Proxy did not reset its client while the broker was down: " + outcome + " after " + millis + " ms");
+    Map<String, Object> result = new LinkedHashMap<String, Object>();
+    result.put("outcome", outcome);
+    result.put("failureMillis", millis);
+    System.out.println("[soak] broker down, client reset after " + millis + " ms");
+    return result;
+  }
+
+  private Map<String, Object> inject(FaultInjectingProxy proxy, Fault fault, long at, long deadline) throws InterruptedException
+  {
+    long injected = System.nanoTime();
+    long length = (fault == Fault.DROP) ? 0 : TimeUnit.SECONDS.toMillis(faultDuration);
+    proxy.inject(fault, length);
+    long healed = injected + TimeUnit.MILLISECONDS.toNanos(length);
+    while (System.nanoTime() < healed)
+      Thread.sleep(50);
+    // recovered once every connector has delivered a message sent after the fault ended
+    long recovered = -1;
+    while (System.nanoTime() < deadline)
+    {
+      if (deliveredSince(healed))
+      {
+        recovered = System.nanoTime();
+        break;
+      }
+      Thread.sleep(10);
+    }
+    Map<String, Object> result = new LinkedHashMap<String, Object>();
+    result.put("fault", fault.name());
+    result.put("atSecond", at);
+    result.put("durationMillis", length);
+    result.put("recovered", recovered >= 0);
+    result.put("recoveryMillis", (recovered >= 0) ? TimeUnit.NANOSECONDS.toMillis(recovered - healed) : -1);
+    System.out.println("[soak] " + at + "s " + fault + " recovery " + result.get("recoveryMillis") + " ms");
+    return result;
+  }
+
+  private boolean deliveredSince(long time)
+  {
+    for (Connector stream : streams)
+      if (stream.lastSentReceived.get() < time)
+        return false;
+    return true;
+  }
+
+  private boolean drained()
+  {
+    for (Connector stream : streams)
+      if (stream.received() + stream.dropped() + stream.failed.get() < stream.sent.get())
+        return false;
+    return true;
+  }
+
+  private Map<String, Object> sample(long second, ThreadMXBean threads, MemoryMXBean memory, FaultInjectingProxy proxy)
+  {
+    Map<String, Object> sample = new LinkedHashMap<String, Object>();
+    sample.put("second", second);
+    sample.put("threads", threads.getThreadCount());
+    sample.put("heapUsedBytes", memory.getHeapMemoryUsage().getUsed());
+    sample.put("proxyConnections", proxy.getConnectionCount());
+    long received = 0;
+    for (Connector stream : streams)
+      received += stream.received();
+    sample.put("received", received);
+    return sample;
+  }
+
+  // an outbound transport publishing sequence numbers to an inbound transport on the same exchange
+  private class Connector implements ByteListener
+  {
+    private final String              name;
+    private final AtomicLong          sent             = new AtomicLong();
+    private final AtomicLong          failed           = new AtomicLong();
+    private final AtomicLong          lastSentReceived = new AtomicLong();
+    private final BitSet              seen             = new BitSet();
+    private long                      unique;
+    private long                      duplicates;
+    private RabbitMQInboundTransport  in;
+    private RabbitMQOutboundTransport out;
+
+    Connector(String name)
+    {
+      this.name = name;
+    }
+
+    void start(int port) throws Exception
+    {
+      Map<String, Object> properties = HarnessTransports.endpointProperties("localhost", port, name);
+      // short heartbeats so half-open sockets are noticed within the fault window
+      properties.put("heartbeat", heartbeat);
+      in = HarnessTransports.createInbound(properties, this);
+      in.start();
+      if (!HarnessTransports.awaitStarted(in, 60, TimeUnit.SECONDS))
+        throw new IllegalStateException("Inbound transport " + name + " did not start: " + in.getErrorMessage());
+      out = HarnessTransports.createOutbound(properties);
+      out.start();
+      if (!HarnessTransports.awaitStarted(out, 60, TimeUnit.SECONDS))
+        throw new IllegalStateException("Outbound transport " + name + " did not start: " + out.getErrorMessage());
+    }
+
+    @Override
+    public void receive(ByteBuffer buffer, String channelId)
+    {
+      long sequence = buffer.getLong(buffer.position());
+      long sentAt = buffer.getLong(buffer.position() + 8);
+      synchronized (seen)
+      {
+        if (seen.get((int) sequence))
+          duplicates++;
+        else
+        {
+          seen.set((int) sequence);
+          unique++;
+        }
+      }
+      long last;
+      while ((last = lastSentReceived.get()) < sentAt && !lastSentReceived.compareAndSet(last, sentAt))
+        ;
+    }
+
+    Runnable publisher()
+    {
+      return new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            ByteBuffer buffer = ByteBuffer.wrap(new byte[size]);
+            long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rate);
+            long next = System.nanoTime();
+            while (publishing)
+            {
+              next += interval;
+              long wait = next - System.nanoTime();
+              if (wait > 0)
+                LockSupport.parkNanos(wait);
+              buffer.putLong(0, sent.get());
+              buffer.putLong(8, System.nanoTime());
+              sent.incrementAndGet();
+              try
+              {
+                out.receive(buffer, "");
+              }
+              catch (RuntimeException e)
+              {
+                // GeoEvent would see this in its outbound adapter, the message is gone
+                failed.incrementAndGet();
+              }
+            }
+          }
+        };
+    }
+
+    long received()
+    {
+      synchronized (seen)
+      {
+        return unique;
+      }
+    }
+
+    long duplicates()
+    {
+      synchronized (seen)
+      {
+        return duplicates;
+      }
+    }
+
+    long dropped()
+    {
+      return attribute("Outbound", "Drops");
+    }
+
+    long lost()
+    {
+      return Math.max(0, sent.get() - dropped() - failed.get() - received());
+    }
+
+    Map<String, Object> summary()
+    {
+      Map<String, Object> summary = new LinkedHashMap<String, Object>();
+      summary.put("name", name);
+      summary.put("sent", sent.get());
+      summary.put("droppedWhileDisconnected", dropped());
+      summary.put("publishFailures", failed.get());
+      summary.put("received", received());
+      summary.put("duplicates", duplicates());
+      summary.put("lost", lost());
+      // the transports' own view of the outages from their connection timelines
+      summary.put("inboundOutages", attribute("Inbound", "Outages"));
+      summary.put("inboundRecoveries", attribute("Inbound", "Recoveries"));
+      summary.put("inboundMeanTimeToRecovery", attribute("Inbound", "MeanTimeToRecovery"));
+      summary.put("outboundOutages", attribute("Outbound", "Outages"));
+      summary.put("outboundRecoveries", attribute("Outbound", "Recoveries"));
+      summary.put("outboundMeanTimeToRecovery", attribute("Outbound", "MeanTimeToRecovery"));
+      return summary;
+    }
+
+    private long attribute(String type, String attribute)
+    {
+      try
+      {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        long total = 0;
+        for (ObjectName bean : server.queryNames(new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name) + ",*"), null))
+          total += ((Number) server.getAttribute(bean, attribute)).longValue();
+        return total;
+      }
+      catch (Exception e)
+      {
+        return -1;
+      }
+    }
+
+    void shutdown()
+    {
+      if (out != null)
+      {
+        out.stop();
+        out.shutdown();
+      }
+      if (in != null)
+      {
+        in.stop();
+        in.shutdown();
+      }
+    }
+  }
+}
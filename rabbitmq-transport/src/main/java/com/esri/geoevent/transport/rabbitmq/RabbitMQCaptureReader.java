@@ -0,0 +1,173 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Reads the segments written by RabbitMQCaptureWriter back in order
+public class RabbitMQCaptureReader
+{
+  private final File[]     segments;
+  private int              next;
+  private MappedByteBuffer segment;
+
+  public static class Record
+  {
+    private final long                timestamp;
+    private final String              routingKey;
+    private final Map<String, Object> headers;
+    private final byte[]              body;
+
+    Record(long timestamp, String routingKey, Map<String, Object> headers, byte[] body)
+    {
+      this.timestamp = timestamp;
+      this.routingKey = routingKey;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    // nanoseconds since the epoch at which the delivery arrived
+    public long getTimestamp()
+    {
+      return timestamp;
+    }
+
+    public String getRoutingKey()
+    {
+      return routingKey;
+    }
+
+    public Map<String, Object> getHeaders()
+    {
+      return headers;
+    }
+
+    public byte[] getBody()
+    {
+      return body;
+    }
+  }
+
+  // a directory holds the segments of every capture written to it, a prefix picks one of them out
+  public RabbitMQCaptureReader(File directory, final String prefix) throws IOException
+  {
+    File[] files = directory.listFiles(new FilenameFilter()
+      {
+        @Override
+        public boolean accept(File dir, String name)
+        {
+          return name.endsWith(RabbitMQCaptureWriter.SUFFIX) && (prefix == null || name.startsWith(prefix));
+        }
+      });
+    if (files == null)
+      throw new IOException(directory.getAbsolutePath());
+    // the capture start time and segment number in the names keep them in write order
+    Arrays.sort(files);
+    segments = files;
+  }
+
+  public Record next() throws IOException
+  {
+    while (true)
+    {
+      if (segment != null && segment.remaining() >= 4)
+      {
+        int length = segment.getInt();
+        if (length > 0)
+          return read();
+      }
+      if (next >= segments.length)
+        return null;
+      open(segments[next++]);
+    }
+  }
+
+  private Record read()
+  {
+    long timestamp = segment.getLong();
+    byte[] key = new byte[segment.getShort()];
+    segment.get(key);
+    int count = segment.getInt();
+    Map<String, Object> headers = null;
+    if (count > 0)
+    {
+      headers = new LinkedHashMap<String, Object>();
+      for (int i = 0; i < count; i++)
+      {
+        byte[] name = new byte[segment.getShort()];
+        segment.get(name);
+        headers.put(new String(name, RabbitMQCaptureWriter.UTF8), readValue());
+      }
+    }
+    byte[] body = new byte[segment.getInt()];
+    segment.get(body);
+    return new Record(timestamp, new String(key, RabbitMQCaptureWriter.UTF8), headers, body);
+  }
+
+  private Object readValue()
+  {
+    switch (segment.get())
+    {
+      case 'J':
+        return segment.getLong();
+      case 'I':
+        return (int) segment.getLong();
+      case 'D':
+        return segment.getDouble();
+      case 'Z':
+        return segment.getLong() != 0;
+      default:
+        byte[] value = new byte[segment.getInt()];
+        segment.get(value);
+        return new String(value, RabbitMQCaptureWriter.UTF8);
+    }
+  }
+
+  private void open(File file) throws IOException
+  {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try
+    {
+      segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+    }
+    finally
+    {
+      raf.close();
+    }
+    if (segment.remaining() < 8 || segment.getInt() != RabbitMQCaptureWriter.MAGIC)
+      throw new IOException(file.getName() + " is not a capture segment");
+    int version = segment.getInt();
+    if (version != RabbitMQCaptureWriter.VERSION)
+      throw new IOException(file.getName() + " has unsupported capture version " + version);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import com.esri.ges.transport.ByteListener;
+
+// Feeds a capture into a ByteListener at the captured pace scaled by a speed factor, a speed of 0 replays flat out.
+// An outbound transport is fed through a ByteListener that hands the buffer to its receive.
+public class RabbitMQCaptureReplay
+{
+  private final RabbitMQCaptureReader reader;
+  private final double                speed;
+  private long                        records;
+  private long                        bytes;
+  private long                        maxLagNanos;
+
+  public RabbitMQCaptureReplay(RabbitMQCaptureReader reader, double speed)
+  {
+    this.reader = reader;
+    this.speed = speed;
+  }
+
+  public void replay(ByteListener listener) throws IOException
+  {
+    long firstTimestamp = 0;
+    long start = 0;
+    RabbitMQCaptureReader.Record record;
+    while ((record = reader.next()) != null)
+    {
+      long now = System.nanoTime();
+      if (records == 0)
+      {
+        firstTimestamp = record.getTimestamp();
+        start = now;
+      }
+      else if (speed > 0)
+      {
+        long due = start + (long) ((record.getTimestamp() - firstTimestamp) / speed);
+        if (due > now)
+          LockSupport.parkNanos(due - now);
+        else
+          maxLagNanos = Math.max(maxLagNanos, now - due);
+      }
+      listener.receive(ByteBuffer.wrap(record.getBody()), "");
+      records++;
+      bytes += record.getBody().length;
+    }
+  }
+
+  public long getRecords()
+  {
+    return records;
+  }
+
+  public long getBytes()
+  {
+    return bytes;
+  }
+
+  // how far the listener fell behind the paced schedule at worst
+  public long getMaxLagNanos()
+  {
+    return maxLagNanos;
+  }
+}
@@ -0,0 +1,189 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.Map;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+
+// Appends deliveries to preallocated memory-mapped segment files, read back with RabbitMQCaptureReader.
+// A segment starts with MAGIC and VERSION followed by records of
+//   int length | long epoch nanos | short key length | routing key | int header count | headers | int body length | body
+// and ends at the first zero length, which is what the unused tail of a preallocated segment already holds.
+public class RabbitMQCaptureWriter
+{
+  private static final BundleLogger LOGGER      = BundleLoggerFactory.getLogger(RabbitMQCaptureWriter.class);
+  static final int                  MAGIC       = 0x524D5143;
+  static final int                  VERSION     = 1;
+  static final String               SUFFIX      = ".capture";
+  static final Charset              UTF8        = Charset.forName("UTF-8");
+  private final File                directory;
+  private final String              prefix;
+  private final int                 segmentSize;
+  // arrival times are taken from System.nanoTime, anchored to the wall clock once
+  private final long                baseEpochNanos;
+  private final long                baseNanoTime;
+  private MappedByteBuffer          segment;
+  private int                       segmentIndex;
+  private long                      records;
+  private boolean                   failed;
+
+  public RabbitMQCaptureWriter(File directory, String name, int segmentSize)
+  {
+    this.directory = directory;
+    this.prefix = name.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + System.currentTimeMillis();
+    this.segmentSize = segmentSize;
+    this.baseEpochNanos = System.currentTimeMillis() * 1000000L;
+    this.baseNanoTime = System.nanoTime();
+  }
+
+  public File getDirectory()
+  {
+    return directory;
+  }
+
+  public int getSegmentSize()
+  {
+    return segmentSize;
+  }
+
+  public synchronized long getRecords()
+  {
+    return records;
+  }
+
+  // a capture that cannot be written is given up rather than slowing down or failing the consumer
+  public synchronized void append(long receivedNanoTime, String routingKey, Map<String, Object> headers, byte[] body)
+  {
+    if (failed)
+      return;
+    byte[] key = (routingKey != null) ? routingKey.getBytes(UTF8) : new byte[0];
+    byte[] encodedHeaders = (headers != null && !headers.isEmpty()) ? encodeHeaders(headers) : null;
+    // the encoded headers start with their own count, without headers only a zero count is written
+    int length = 8 + 2 + key.length + ((encodedHeaders != null) ? encodedHeaders.length : 4) + 4 + body.length;
+    try
+    {
+      // room is always left for the terminating zero length
+      if (segment == null || segment.remaining() < 4 + length + 4)
+        nextSegment(4 + length + 4);
+    }
+    catch (IOException e)
+    {
+      failed = true;
+      LOGGER.warn("CAPTURE_WRITE_ERROR", directory.getAbsolutePath(), e.getMessage());
+      return;
+    }
+    segment.putInt(length);
+    segment.putLong(baseEpochNanos + (receivedNanoTime - baseNanoTime));
+    segment.putShort((short) key.length);
+    segment.put(key);
+    if (encodedHeaders != null)
+      segment.put(encodedHeaders);
+    else
+      segment.putInt(0);
+    segment.putInt(body.length);
+    segment.put(body);
+    records++;
+  }
+
+  private void nextSegment(int required) throws IOException
+  {
+    if (segment != null)
+      segment.force();
+    if (!directory.isDirectory() && !directory.mkdirs())
+      throw new IOException(directory.getAbsolutePath());
+    File file = new File(directory, String.format("%s-%06d%s", prefix, segmentIndex++, SUFFIX));
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try
+    {
+      // the mapping stays valid after the file is closed
+      segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, 8 + required));
+    }
+    finally
+    {
+      raf.close();
+    }
+    segment.putInt(MAGIC);
+    segment.putInt(VERSION);
+  }
+
+  // count, then per header a key and a tagged value, types outside the AMQP basics are kept as text
+  private static byte[] encodeHeaders(Map<String, Object> headers)
+  {
+    int size = 4;
+    byte[][] keys = new byte[headers.size()][];
+    Object[] values = new Object[headers.size()];
+    int i = 0;
+    for (Map.Entry<String, Object> header : headers.entrySet())
+    {
+      keys[i] = header.getKey().getBytes(UTF8);
+      Object value = header.getValue();
+      if (value instanceof Date)
+        value = ((Date) value).getTime();
+      else if (!(value instanceof Long || value instanceof Integer || value instanceof Double || value instanceof Boolean))
+        value = String.valueOf(value).getBytes(UTF8);
+      values[i] = value;
+      size += 2 + keys[i].length + 1 + ((value instanceof byte[]) ? 4 + ((byte[]) value).length : 8);
+      i++;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(keys.length);
+    for (i = 0; i < keys.length; i++)
+    {
+      buffer.putShort((short) keys[i].length);
+      buffer.put(keys[i]);
+      Object value = values[i];
+      if (value instanceof Long)
+        buffer.put((byte) 'J').putLong((Long) value);
+      else if (value instanceof Integer)
+        buffer.put((byte) 'I').putLong((Integer) value);
+      else if (value instanceof Double)
+        buffer.put((byte) 'D').putDouble((Double) value);
+      else if (value instanceof Boolean)
+        buffer.put((byte) 'Z').putLong(((Boolean) value) ? 1 : 0);
+      else
+        buffer.put((byte) 'S').putInt(((byte[]) value).length).put((byte[]) value);
+    }
+    return buffer.array();
+  }
+
+  public synchronized void close()
+  {
+    if (segment != null)
+    {
+      segment.force();
+      segment = null;
+    }
+  }
+}
@@ -37,36 +37,36 @@ public class RabbitMQChannelListener extends RabbitMQObservable implements Chann
   @Override
   public void onCreate(Channel channel)
   {
-    notifyObservers(RabbitMQConnectionStatus.CREATED, LOGGER.translate("CHANNEL_CREATED", channel.getChannelNumber()), channel);
+    notifyListeners(RabbitMQConnectionStatus.CREATED, LOGGER.translate("CHANNEL_CREATED", channel.getChannelNumber()));
   }
 
   @Override
   public void onCreateFailure(Throwable failure)
   {
-    notifyObservers(RabbitMQConnectionStatus.CREATION_FAILED, LOGGER.translate("CHANNEL_CREATION_FAILED", failure.getMessage()));
+    notifyListeners(RabbitMQConnectionStatus.CREATION_FAILED, LOGGER.translate("CHANNEL_CREATION_FAILED", failure.getMessage()));
   }
 
   @Override
   public void onRecovery(Channel channel)
   {
-    notifyObservers(RabbitMQConnectionStatus.RECOVERY, LOGGER.translate("CHANNEL_RECOVERED", channel.getChannelNumber()), channel);
+    notifyListeners(RabbitMQConnectionStatus.RECOVERY, LOGGER.translate("CHANNEL_RECOVERED", channel.getChannelNumber()));
   }
 
   @Override
   public void onRecoveryStarted(Channel channel)
   {
-    notifyObservers(RabbitMQConnectionStatus.RECOVERY_STARTED, LOGGER.translate("CHANNEL_RECOVERY_STARTED", channel.getChannelNumber()), channel);
+    notifyListeners(RabbitMQConnectionStatus.RECOVERY_STARTED, LOGGER.translate("CHANNEL_RECOVERY_STARTED", channel.getChannelNumber()));
   }
 
   @Override
   public void onRecoveryCompleted(Channel channel)
   {
-    notifyObservers(RabbitMQConnectionStatus.RECOVERY_COMPLETED, LOGGER.translate("CHANNEL_RECOVERY_COMPLETED", channel.getChannelNumber()), channel);
+    notifyListeners(RabbitMQConnectionStatus.RECOVERY_COMPLETED, LOGGER.translate("CHANNEL_RECOVERY_COMPLETED", channel.getChannelNumber()));
   }
 
   @Override
   public void onRecoveryFailure(Channel channel, Throwable failure)
   {
-    notifyObservers(RabbitMQConnectionStatus.RECOVERY_FAILED, LOGGER.translate("CHANNEL_RECOVERY_FAILED", channel.getChannelNumber(), failure.getMessage()), channel);
+    notifyListeners(RabbitMQConnectionStatus.RECOVERY_FAILED, LOGGER.translate("CHANNEL_RECOVERY_FAILED", channel.getChannelNumber(), failure.getMessage()));
   }
 }
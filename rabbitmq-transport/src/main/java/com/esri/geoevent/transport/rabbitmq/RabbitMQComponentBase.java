@@ -25,8 +25,6 @@
 package com.esri.geoevent.transport.rabbitmq;
 
 import java.io.IOException;
-import java.util.Observable;
-import java.util.Observer;
 import java.util.concurrent.TimeoutException;
 
 import com.esri.ges.framework.i18n.BundleLogger;
@@ -35,7 +33,7 @@ import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.ShutdownListener;
 import com.rabbitmq.client.ShutdownSignalException;
 
-public abstract class RabbitMQComponentBase extends RabbitMQObservable implements Observer
+public abstract class RabbitMQComponentBase extends RabbitMQObservable implements RabbitMQStatusListener
 {
   private static final BundleLogger LOGGER    = BundleLoggerFactory.getLogger(RabbitMQComponentBase.class);
   private RabbitMQConnectionBroker  broker;
@@ -47,7 +45,7 @@ public abstract class RabbitMQComponentBase extends RabbitMQObservable implement
   public RabbitMQComponentBase(RabbitMQConnectionInfo connectionInfo, RabbitMQExchange exchange)
   {
     broker = new RabbitMQConnectionBroker(connectionInfo);
-    broker.addObserver(this);
+    broker.addListener(this);
     this.exchange = exchange;
   }
 
@@ -64,7 +62,7 @@ public abstract class RabbitMQComponentBase extends RabbitMQObservable implement
           }
         });
 
-      channel.exchangeDeclare(exchange.getName(), exchange.getType().toString(), exchange.isDurable(), exchange.isAutoDelete(), null);
+      channel.exchangeDeclare(exchange.getName(), exchange.getType().getAmqpType(), exchange.isDurable(), exchange.isAutoDelete(), exchange.getArguments());
     }
     catch (IOException e)
     {
@@ -130,17 +128,13 @@ public abstract class RabbitMQComponentBase extends RabbitMQObservable implement
   public void shutdown()
   {
     disconnect("");
-    broker.deleteObserver(this);
+    broker.removeListener(this);
     broker.shutdown();
   }
 
   @Override
-  public void update(Observable observable, Object obj)
+  public void onStatus(RabbitMQConnectionStatus status, String details)
   {
-    if (obj instanceof RabbitMQTransportEvent)
-    {
-      RabbitMQTransportEvent event = (RabbitMQTransportEvent) obj;
-      notifyObservers(event.getStatus(), event.getDetails());
-    }
+    notifyListeners(status, details);
   }
 }
@@ -31,6 +31,7 @@ import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.ShutdownListener;
 import com.rabbitmq.client.ShutdownSignalException;
+import com.rabbitmq.client.SocketConfigurator;
 
 import net.jodah.lyra.ConnectionOptions;
 import net.jodah.lyra.Connections;
@@ -38,40 +39,43 @@ import net.jodah.lyra.config.Config;
 import net.jodah.lyra.config.RecoveryPolicies;
 
 import java.io.IOException;
-import java.util.Observable;
-import java.util.Observer;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class RabbitMQConnectionBroker extends RabbitMQObservable implements Observer
+import javax.net.ssl.SSLSocket;
+
+public class RabbitMQConnectionBroker extends RabbitMQObservable implements RabbitMQStatusListener
 {
-  private static final BundleLogger  LOGGER  = BundleLoggerFactory.getLogger(RabbitMQComponentBase.class);
-  private Connection                 connection;
-  private RabbitMQConnectionListener connectionListener;
-  private RabbitMQChannelListener    channelListener;
-  private RabbitMQConsumerListener   consumerListener;
-  private RabbitMQConnectionMonitor  monitor;
-  private int                        timeout = 5000;
+  private static final BundleLogger         LOGGER            = BundleLoggerFactory.getLogger(RabbitMQComponentBase.class);
+  // one bounded pool shared by every connection for consumer dispatch, the client work service round-robins channels on it
+  private static final ExecutorService      CONSUMER_EXECUTOR = createConsumerExecutor();
+  private RabbitMQConnectionMonitor         monitor;
+  private volatile RabbitMQConnectionHandle active;
+  private volatile RabbitMQConnectionHandle standby;
+  private final RabbitMQConnectionTimeline  timeline          = new RabbitMQConnectionTimeline();
+  private int                               timeout           = 5000;
 
   public RabbitMQConnectionBroker(RabbitMQConnectionInfo connectionInfo)
   {
-    connectionListener = new RabbitMQConnectionListener(connectionInfo);
-    connectionListener.addObserver(this);
-    channelListener = new RabbitMQChannelListener();
-    channelListener.addObserver(this);
-    consumerListener = new RabbitMQConsumerListener();
-    consumerListener.addObserver(this);
     monitor = new RabbitMQConnectionMonitor(connectionInfo);
-    monitor.addObserver(this);
+    monitor.addListener(this);
     new Thread(monitor).start();
   }
 
   public Channel createChannel() throws RabbitMQTransportException
   {
-    if (isConnected())
+    RabbitMQConnectionHandle handle = active;
+    if (handle != null && handle.isOpen())
     {
       try
       {
-        return connection.createChannel();
+        return handle.connection.createChannel();
       }
       catch (IOException e)
       {
@@ -88,54 +92,216 @@ public class RabbitMQConnectionBroker extends RabbitMQObservable implements Obse
 
   public boolean isConnected()
   {
-    return connection != null && connection.isOpen();
+    RabbitMQConnectionHandle handle = active;
+    return handle != null && handle.isOpen();
   }
 
   public void shutdown()
   {
-    monitor.deleteObserver(this);
+    monitor.removeListener(this);
     monitor.stop();
-    connectionListener.deleteObserver(this);
-    channelListener.deleteObserver(this);
-    consumerListener.deleteObserver(this);
-    if (isConnected())
+    RabbitMQConnectionHandle handle = standby;
+    standby = null;
+    if (handle != null)
+      handle.close();
+    handle = active;
+    active = null;
+    if (handle != null)
+      handle.close();
+  }
+
+  @Override
+  public void onStatus(RabbitMQConnectionStatus status, String details)
+  {
+    if (RabbitMQConnectionStatus.RECOVERY_STARTED.equals(status) || RabbitMQConnectionStatus.DISCONNECTED.equals(status))
+    {
+      // the broker may have lost transient topology while the connection was down
+      getTopologyCache().invalidate();
+    }
+    notifyListeners(status, details);
+  }
+
+  @Override
+  public void notifyListeners(RabbitMQConnectionStatus status, String details)
+  {
+    RabbitMQFlightRecorder.statusChanged(monitor.connectionInfo.getHost(), status, details);
+    timeline.record(status, details);
+    super.notifyListeners(status, details);
+  }
+
+  public RabbitMQConnectionInfo getConnectionInfo()
+  {
+    return monitor.connectionInfo;
+  }
+
+  public RabbitMQTopologyCache getTopologyCache()
+  {
+    RabbitMQConnectionHandle handle = active;
+    return (handle != null) ? handle.topologyCache : new RabbitMQTopologyCache();
+  }
+
+  public RabbitMQConnectionTimeline getTimeline()
+  {
+    return timeline;
+  }
+
+  void recoveryCompleted()
+  {
+    // an outage lasts from its detection until a component is connected again
+    long recoveryTime = timeline.resumed();
+    if (recoveryTime >= 0)
+      LOGGER.info("CONNECTION_RECOVERY_TIME", monitor.connectionInfo.getHost(), recoveryTime);
+  }
+
+  private boolean failover(RabbitMQConnectionHandle failed, String reason)
+  {
+    RabbitMQConnectionHandle promoted;
+    synchronized (this)
+    {
+      if (failed != active || standby == null || !standby.isOpen())
+        return false;
+      promoted = standby;
+      standby = null;
+      active = promoted;
+    }
+    String msg = LOGGER.translate("CONNECTION_FAILOVER", failed.host, promoted.host);
+    LOGGER.warn(msg);
+    timeline.failover(msg);
+    // stops the failed connection from recovering behind the promoted one
+    failed.close();
+    notifyListeners(RabbitMQConnectionStatus.DISCONNECTED, reason);
+    notifyListeners(RabbitMQConnectionStatus.CREATED, msg);
+    return true;
+  }
+
+  private static ExecutorService createConsumerExecutor()
+  {
+    int poolSize = Integer.getInteger("com.esri.geoevent.transport.rabbitmq.consumerThreads", Runtime.getRuntime().availableProcessors());
+    if (poolSize < 1)
+      poolSize = 1;
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+      {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+          Thread thread = new Thread(runnable, "rabbitmq-consumer-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    // idle feeds should not pin threads
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private class RabbitMQConnectionHandle implements RabbitMQStatusListener
+  {
+    private final String                     host;
+    private final RabbitMQConnectionListener connectionListener;
+    private final RabbitMQChannelListener    channelListener;
+    private final RabbitMQConsumerListener   consumerListener;
+    private final RabbitMQTopologyCache      topologyCache = new RabbitMQTopologyCache();
+    private volatile Connection              connection;
+
+    public RabbitMQConnectionHandle(RabbitMQConnectionInfo connectionInfo, String host)
+    {
+      this.host = host;
+      connectionListener = new RabbitMQConnectionListener(connectionInfo);
+      connectionListener.addListener(this);
+      connectionListener.addListener(new RabbitMQStatusListener()
+        {
+          @Override
+          public void onStatus(RabbitMQConnectionStatus status, String details)
+          {
+            failover(RabbitMQConnectionHandle.this, details);
+          }
+        }, false, RabbitMQConnectionStatus.RECOVERY_STARTED);
+      channelListener = new RabbitMQChannelListener();
+      channelListener.addListener(this);
+      consumerListener = new RabbitMQConsumerListener();
+      consumerListener.addListener(this);
+    }
+
+    public boolean isOpen()
     {
+      return connection != null && connection.isOpen();
+    }
+
+    @Override
+    public void onStatus(RabbitMQConnectionStatus status, String details)
+    {
+      // a standby stays silent until it is promoted
+      if (this == active)
+        RabbitMQConnectionBroker.this.onStatus(status, details);
+      else if (RabbitMQConnectionStatus.RECOVERY_STARTED.equals(status))
+        topologyCache.invalidate();
+    }
+
+    public void prime(RabbitMQTopologyCache source)
+    {
+      Channel channel = null;
       try
       {
-        connection.close(timeout);
+        channel = connection.createChannel();
+        topologyCache.primeFrom(source, channel);
       }
       catch (IOException e)
       {
-        String msg = LOGGER.translate("CONNECTION_CLOSE_ERROR", monitor.connectionInfo.getHost(), e.getMessage());
-        LOGGER.error(msg, e);
+        LOGGER.warn("STANDBY_PRIME_ERROR", host, e.getMessage());
+        topologyCache.invalidate();
       }
       finally
       {
-        connection = null;
+        if (channel != null && channel.isOpen())
+        {
+          try
+          {
+            channel.close();
+          }
+          catch (IOException | TimeoutException e)
+          {
+            ;
+          }
+        }
       }
     }
-  }
 
-  @Override
-  public void update(Observable observable, Object obj)
-  {
-    if (obj instanceof RabbitMQTransportEvent)
+    public void close()
     {
-      RabbitMQTransportEvent event = (RabbitMQTransportEvent) obj;
-      notifyObservers(event.getStatus(), event.getDetails());
+      connectionListener.removeListener(this);
+      channelListener.removeListener(this);
+      consumerListener.removeListener(this);
+      topologyCache.invalidate();
+      if (connection != null)
+      {
+        try
+        {
+          if (connection.isOpen())
+            connection.close(timeout);
+          else
+            connection.abort(timeout);
+        }
+        catch (IOException e)
+        {
+          String msg = LOGGER.translate("CONNECTION_CLOSE_ERROR", host, e.getMessage());
+          LOGGER.error(msg, e);
+        }
+        finally
+        {
+          connection = null;
+        }
+      }
     }
   }
 
-  public RabbitMQConnectionInfo getConnectionInfo()
-  {
-    return monitor.connectionInfo;
-  }
-
   private class RabbitMQConnectionMonitor extends RabbitMQObservable implements Runnable
   {
     private RabbitMQConnectionInfo connectionInfo;
-    private volatile boolean       running    = false;
-    private volatile boolean       errorState = false;
+    private volatile boolean       running           = false;
+    private volatile boolean       errorState        = false;
+    private volatile boolean       standbyErrorState = false;
 
     public RabbitMQConnectionMonitor(RabbitMQConnectionInfo connectionInfo)
     {
@@ -152,34 +318,15 @@ public class RabbitMQConnectionBroker extends RabbitMQObservable implements Obse
         {
           try
           {
-            ConnectionFactory factory = new ConnectionFactory();
-            factory.setHost(connectionInfo.getHost());
-            factory.setPort(connectionInfo.getPort());
-            if (connectionInfo.getVirtualHost() != null)
-              factory.setVirtualHost(connectionInfo.getVirtualHost());
-            if (connectionInfo.isSsl())
-              factory.useSslProtocol();
-            if (connectionInfo.getUsername() != null && connectionInfo.getPassword() != null)
-            {
-              factory.setUsername(connectionInfo.getUsername());
-              factory.setPassword(connectionInfo.getPassword());
-            }
-            ConnectionOptions options = new ConnectionOptions().withConnectionFactory(factory);
-            Config config = new Config().withRecoveryPolicy(RecoveryPolicies.recoverAlways()).withChannelListeners(channelListener).withConnectionListeners(connectionListener).withConsumerListeners(consumerListener).withConsumerRecovery(true);
-            connection = Connections.create(options, config);
-            connection.addShutdownListener(new ShutdownListener()
-              {
-                @Override
-                public void shutdownCompleted(ShutdownSignalException cause)
-                {
-                  LOGGER.error("CONNECTION_BROKEN_WITH_CAUSE_ERROR", connectionInfo.getHost(), cause.getMessage());
-                  notifyObservers(RabbitMQConnectionStatus.DISCONNECTED, cause.getMessage());
-                }
-              });
+            RabbitMQConnectionHandle previous = active;
+            RabbitMQConnectionHandle handle = createConnection(connectionInfo.getHost());
+            active = handle;
+            if (previous != null)
+              previous.close();
             errorState = false;
             String msg = LOGGER.translate("CONNECTION_ESTABLISH_SUCCESS", connectionInfo.getHost());
             LOGGER.info(msg);
-            notifyObservers(RabbitMQConnectionStatus.CREATED, msg);
+            notifyListeners(RabbitMQConnectionStatus.CREATED, msg);
           }
           catch (Throwable th)
           {
@@ -188,15 +335,105 @@ public class RabbitMQConnectionBroker extends RabbitMQObservable implements Obse
             {
               String msg = LOGGER.translate("CONNECTION_ESTABLISH_FAILURE", connectionInfo.getHost(), th.getMessage());
               LOGGER.error(msg, th);
-              notifyObservers(RabbitMQConnectionStatus.CREATION_FAILED, msg);
+              notifyListeners(RabbitMQConnectionStatus.CREATION_FAILED, msg);
               errorState = true;
             }
           }
         }
+        else if (connectionInfo.isWarmStandby() && (standby == null || !standby.isOpen()))
+        {
+          RabbitMQConnectionHandle current = active;
+          String standbyHost = standbyHostFor(current);
+          try
+          {
+            RabbitMQConnectionHandle previous = standby;
+            standby = null;
+            if (previous != null)
+              previous.close();
+            RabbitMQConnectionHandle handle = createConnection(standbyHost);
+            handle.prime(current.topologyCache);
+            standby = handle;
+            standbyErrorState = false;
+            LOGGER.info("STANDBY_ESTABLISH_SUCCESS", standbyHost);
+          }
+          catch (Throwable th)
+          {
+            if (!standbyErrorState)
+            {
+              LOGGER.error("STANDBY_ESTABLISH_FAILURE", standbyHost, th.getMessage());
+              LOGGER.warn("STANDBY_DEGRADED", current.host, standbyHost);
+              standbyErrorState = true;
+            }
+          }
+        }
         sleep();
       }
     }
 
+    // the standby goes to whichever of the two hosts the active connection is not on, so after a failover it moves
+    // to the failed node instead of sharing the promoted one
+    private String standbyHostFor(RabbitMQConnectionHandle handle)
+    {
+      String host = connectionInfo.getHost();
+      String standbyHost = connectionInfo.getStandbyHost();
+      return (handle != null && handle.host.equals(standbyHost)) ? host : standbyHost;
+    }
+
+    // the active connection has no standby while the other host cannot be reached
+    public String getStandbyDetails()
+    {
+      RabbitMQConnectionHandle current = active;
+      if (!connectionInfo.isWarmStandby() || !standbyErrorState || current == null || !current.isOpen())
+        return null;
+      return LOGGER.translate("STANDBY_DEGRADED", current.host, standbyHostFor(current));
+    }
+
+    private RabbitMQConnectionHandle createConnection(String host) throws Exception
+    {
+      final RabbitMQConnectionHandle handle = new RabbitMQConnectionHandle(connectionInfo, host);
+      ConnectionFactory factory = new ConnectionFactory();
+      factory.setSharedExecutor(CONSUMER_EXECUTOR);
+      factory.setHost(host);
+      factory.setPort(connectionInfo.getPort());
+      if (connectionInfo.getVirtualHost() != null)
+        factory.setVirtualHost(connectionInfo.getVirtualHost());
+      if (connectionInfo.isSsl())
+        factory.useSslProtocol(connectionInfo.getTls().getSslContext());
+      if (connectionInfo.getUsername() != null && connectionInfo.getPassword() != null)
+      {
+        factory.setUsername(connectionInfo.getUsername());
+        factory.setPassword(connectionInfo.getPassword());
+      }
+      connectionInfo.getTuning().apply(factory);
+      factory.setSocketConfigurator(new SocketConfigurator()
+        {
+          @Override
+          public void configure(Socket socket) throws IOException
+          {
+            connectionInfo.getTuning().configure(socket);
+            if (socket instanceof SSLSocket)
+              connectionInfo.getTls().configure((SSLSocket) socket);
+          }
+        });
+      ConnectionOptions options = new ConnectionOptions().withConnectionFactory(factory).withConsumerExecutor(CONSUMER_EXECUTOR);
+      Config config = new Config().withRecoveryPolicy(RecoveryPolicies.recoverAlways()).withChannelListeners(handle.channelListener).withConnectionListeners(handle.connectionListener).withConsumerListeners(handle.consumerListener).withConsumerRecovery(true);
+      handle.connection = Connections.create(options, config);
+      handle.connection.addShutdownListener(new ShutdownListener()
+        {
+          @Override
+          public void shutdownCompleted(ShutdownSignalException cause)
+          {
+            handle.topologyCache.invalidate();
+            if (handle != active)
+              return;
+            LOGGER.error("CONNECTION_BROKEN_WITH_CAUSE_ERROR", handle.host, cause.getMessage());
+            if (!failover(handle, cause.getMessage()))
+              notifyListeners(RabbitMQConnectionStatus.DISCONNECTED, cause.getMessage());
+          }
+        });
+      return handle;
+    }
+
     private void sleep()
     {
       try
@@ -215,18 +452,19 @@ public class RabbitMQConnectionBroker extends RabbitMQObservable implements Obse
     }
   }
 
-  public abstract static class RabbitMQComponentBase extends RabbitMQObservable implements Observer
+  public abstract static class RabbitMQComponentBase extends RabbitMQObservable implements RabbitMQStatusListener
   {
     private RabbitMQConnectionBroker broker;
     protected RabbitMQExchange       exchange;
-    protected volatile boolean       connected = false;
-    private String                   details   = "";
+    protected volatile boolean       connected      = false;
+    private String                   details        = "";
     protected Channel                channel;
+    protected boolean                passiveDeclare = false;
 
     public RabbitMQComponentBase(RabbitMQConnectionInfo connectionInfo, RabbitMQExchange exchange)
     {
       broker = new RabbitMQConnectionBroker(connectionInfo);
-      broker.addObserver(this);
+      broker.addListener(this);
       this.exchange = exchange;
     }
 
@@ -234,16 +472,22 @@ public class RabbitMQConnectionBroker extends RabbitMQObservable implements Obse
     {
       try
       {
+        final Channel initChannel = channel;
         channel.addShutdownListener(new ShutdownListener()
           {
             @Override
             public void shutdownCompleted(ShutdownSignalException cause)
             {
-              disconnect(cause.getMessage());
+              // a channel error may mean a declaration did not stick, declare again on the next connect
+              if (!cause.isInitiatedByApplication())
+                broker.getTopologyCache().invalidate();
+              // after a failover the component may already be running on a new channel
+              if (initChannel == channel)
+                disconnect(cause.getMessage());
             }
           });
 
-        channel.exchangeDeclare(exchange.getName(), exchange.getType().toString(), exchange.isDurable(), exchange.isAutoDelete(), null);
+        broker.getTopologyCache().declareExchange(channel, exchange, passiveDeclare);
       }
       catch (IOException e)
       {
@@ -255,7 +499,30 @@ public class RabbitMQConnectionBroker extends RabbitMQObservable implements Obse
 
     public String getStatusDetails()
     {
-      return details;
+      String standby = broker.monitor.getStandbyDetails();
+      if (standby == null)
+        return details;
+      return (details == null || details.isEmpty()) ? standby : details + " " + standby;
+    }
+
+    public void setPassiveDeclare(boolean value)
+    {
+      this.passiveDeclare = value;
+    }
+
+    protected RabbitMQTopologyCache getTopologyCache()
+    {
+      return broker.getTopologyCache();
+    }
+
+    public RabbitMQConnectionTimeline getTimeline()
+    {
+      return broker.getTimeline();
+    }
+
+    protected Channel createChannel() throws RabbitMQTransportException
+    {
+      return broker.createChannel();
     }
 
     public boolean isConnected()
@@ -263,6 +530,13 @@ public class RabbitMQConnectionBroker extends RabbitMQObservable implements Obse
       return connected;
     }
 
+    // runs the component on a channel it did not open, without declaring anything, so its hot path can be driven in isolation
+    synchronized void attach(Channel channel)
+    {
+      this.channel = channel;
+      connected = true;
+    }
+
     protected synchronized void connect() throws RabbitMQTransportException
     {
       LOGGER.info("Connecting..");
@@ -278,6 +552,7 @@ public class RabbitMQConnectionBroker extends RabbitMQObservable implements Obse
         init();
         details = "";
         connected = true;
+        broker.recoveryCompleted();
       }
       else
       {
@@ -317,18 +592,14 @@ public class RabbitMQConnectionBroker extends RabbitMQObservable implements Obse
     public void shutdown(String reason)
     {
       disconnect(reason);
-      broker.deleteObserver(this);
+      broker.removeListener(this);
       broker.shutdown();
     }
 
     @Override
-    public void update(Observable observable, Object obj)
+    public void onStatus(RabbitMQConnectionStatus status, String details)
     {
-      if (obj instanceof RabbitMQTransportEvent)
-      {
-        RabbitMQTransportEvent event = (RabbitMQTransportEvent) obj;
-        notifyObservers(event.getStatus(), event.getDetails());
-      }
+      notifyListeners(status, details);
     }
   }
 }
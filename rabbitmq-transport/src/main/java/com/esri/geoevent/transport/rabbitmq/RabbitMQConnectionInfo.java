@@ -39,8 +39,22 @@ public class RabbitMQConnectionInfo implements Validatable
 	private String										username		= null;
 	private String										password		= null;
 	private boolean										ssl					= true;
+	private RabbitMQConnectionTuning	tuning;
+	private RabbitMQTlsSettings				tls;
+	private boolean										warmStandby	= false;
+	private String										standbyHost	= null;
 
 	public RabbitMQConnectionInfo(String host, String port, String virtualHost, String username, String password, String ssl)
+	{
+		this(host, port, virtualHost, username, password, ssl, new RabbitMQConnectionTuning());
+	}
+
+	public RabbitMQConnectionInfo(String host, String port, String virtualHost, String username, String password, String ssl, RabbitMQConnectionTuning tuning)
+	{
+		this(host, port, virtualHost, username, password, ssl, tuning, null, null, null);
+	}
+
+	public RabbitMQConnectionInfo(String host, String port, String virtualHost, String username, String password, String ssl, RabbitMQConnectionTuning tuning, RabbitMQTlsSettings tls, String warmStandby, String standbyHost)
 	{
 		this.host = host;
 		this.port = Converter.convertToInteger(port, 5672);
@@ -48,6 +62,10 @@ public class RabbitMQConnectionInfo implements Validatable
 		this.username = username;
     this.password = password;
 		this.ssl = Converter.convertToBoolean(ssl, false);
+		this.tuning = (tuning != null) ? tuning : new RabbitMQConnectionTuning();
+		this.tls = (tls != null) ? tls : new RabbitMQTlsSettings();
+		this.warmStandby = Converter.convertToBoolean(warmStandby, false);
+		this.standbyHost = standbyHost;
 	}
 
 	public String getHost()
@@ -80,6 +98,27 @@ public class RabbitMQConnectionInfo implements Validatable
 		return ssl;
 	}
 
+	public RabbitMQConnectionTuning getTuning()
+	{
+		return tuning;
+	}
+
+	public RabbitMQTlsSettings getTls()
+	{
+		return tls;
+	}
+
+	public boolean isWarmStandby()
+	{
+		return warmStandby;
+	}
+
+	public String getStandbyHost()
+	{
+		// without a dedicated node the standby is a second connection to the same host
+		return (standbyHost == null || standbyHost.trim().isEmpty()) ? host : standbyHost;
+	}
+
 	@Override
 	public void validate() throws ValidationException
 	{
@@ -87,5 +126,8 @@ public class RabbitMQConnectionInfo implements Validatable
 			throw new ValidationException(LOGGER.translate("CONNECTION_HOST_VALIDATE_ERROR"));
 		if (port <= 0)
 			throw new ValidationException(LOGGER.translate("CONNECTION_PORT_VALIDATE_ERROR"));
+		tuning.validate();
+		if (ssl)
+			tls.validate();
 	}
 }
@@ -44,7 +44,7 @@ public class RabbitMQConnectionListener extends RabbitMQObservable implements Co
   @Override
   public void onCreate(Connection connection)
   {
-    notifyObservers(RabbitMQConnectionStatus.CREATED, LOGGER.translate("CONNECTION_ESTABLISH_SUCCESS", connection.getAddress().getCanonicalHostName()), connection);
+    notifyListeners(RabbitMQConnectionStatus.CREATED, LOGGER.translate("CONNECTION_ESTABLISH_SUCCESS", connection.getAddress().getCanonicalHostName()));
   }
 
   @Override
@@ -57,31 +57,31 @@ public class RabbitMQConnectionListener extends RabbitMQObservable implements Co
       if (failureMsg == null || failureMsg.trim().isEmpty())
         msg = failure.toString();
     }
-    notifyObservers(RabbitMQConnectionStatus.CREATION_FAILED, LOGGER.translate("CONNECTION_ESTABLISH_FAILURE", (connectionInfo != null ? connectionInfo.getHost() : "UnknownHost"), msg));
+    notifyListeners(RabbitMQConnectionStatus.CREATION_FAILED, LOGGER.translate("CONNECTION_ESTABLISH_FAILURE", (connectionInfo != null ? connectionInfo.getHost() : "UnknownHost"), msg));
   }
 
   @Override
   public void onRecovery(Connection connection)
   {
 
-    notifyObservers(RabbitMQConnectionStatus.RECOVERY, LOGGER.translate("CONNECTION_RECOVERED", connection.getAddress().getCanonicalHostName()), connection);
+    notifyListeners(RabbitMQConnectionStatus.RECOVERY, LOGGER.translate("CONNECTION_RECOVERED", connection.getAddress().getCanonicalHostName()));
   }
 
   @Override
   public void onRecoveryStarted(Connection connection)
   {
-    notifyObservers(RabbitMQConnectionStatus.RECOVERY_STARTED, LOGGER.translate("CONNECTION_RECOVERY_STARTED", connection.getAddress().getCanonicalHostName()), connection);
+    notifyListeners(RabbitMQConnectionStatus.RECOVERY_STARTED, LOGGER.translate("CONNECTION_RECOVERY_STARTED", connection.getAddress().getCanonicalHostName()));
   }
 
   @Override
   public void onRecoveryCompleted(Connection connection)
   {
-    notifyObservers(new RabbitMQTransportEvent(RabbitMQConnectionStatus.RECOVERY_COMPLETED, LOGGER.translate("CONNECTION_RECOVERY_COMPLETED", connection.getAddress().getCanonicalHostName()), connection));
+    notifyListeners(RabbitMQConnectionStatus.RECOVERY_COMPLETED, LOGGER.translate("CONNECTION_RECOVERY_COMPLETED", connection.getAddress().getCanonicalHostName()));
   }
 
   @Override
   public void onRecoveryFailure(Connection connection, Throwable failure)
   {
-    notifyObservers(RabbitMQConnectionStatus.RECOVERY_FAILED, LOGGER.translate("CONNECTION_RECOVERY_FAILED", connection.getAddress().getCanonicalHostName(), failure.getMessage()), connection);
+    notifyListeners(RabbitMQConnectionStatus.RECOVERY_FAILED, LOGGER.translate("CONNECTION_RECOVERY_FAILED", connection.getAddress().getCanonicalHostName(), failure.getMessage()));
   }
 }
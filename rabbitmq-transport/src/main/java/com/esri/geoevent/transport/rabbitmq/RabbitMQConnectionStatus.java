@@ -26,5 +26,5 @@ package com.esri.geoevent.transport.rabbitmq;
 
 public enum RabbitMQConnectionStatus
 {
-  CREATED, CREATION_FAILED, RECOVERY, RECOVERY_STARTED, RECOVERY_COMPLETED, RECOVERY_FAILED, DISCONNECTED, SHUTDOWN
+  CREATED, CREATION_FAILED, RECOVERY, RECOVERY_STARTED, RECOVERY_COMPLETED, RECOVERY_FAILED, DISCONNECTED, SHUTDOWN, QUEUE_LAG_EXCEEDED, QUEUE_LAG_CLEARED
 }
@@ -0,0 +1,199 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+public class RabbitMQConnectionTimeline
+{
+  private static final int    DEFAULT_CAPACITY = 64;
+  private static final String RESUMED          = "RESUMED";
+  private static final String FAILOVER         = "FAILOVER";
+  // bounded ring of the most recent transitions, the aggregates below cover the whole lifetime
+  private final Transition[]  transitions;
+  private int                 next             = 0;
+  private int                 size             = 0;
+  private long                outageStarted    = 0;
+  private long                outages          = 0;
+  private long                recoveries       = 0;
+  private long                recoveryFailures = 0;
+  private long                failovers        = 0;
+  private long                totalOutageNanos = 0;
+  private long                longestOutage    = 0;
+  private long                lastOutage       = -1;
+
+  public RabbitMQConnectionTimeline()
+  {
+    this(Integer.getInteger("com.esri.geoevent.transport.rabbitmq.timelineSize", DEFAULT_CAPACITY));
+  }
+
+  public RabbitMQConnectionTimeline(int capacity)
+  {
+    transitions = new Transition[Math.max(1, capacity)];
+  }
+
+  public synchronized void record(RabbitMQConnectionStatus status, String details)
+  {
+    add(status.name(), details);
+    switch (status)
+    {
+      case RECOVERY_STARTED:
+      case DISCONNECTED:
+        outageBegan();
+        break;
+      case RECOVERY_FAILED:
+        recoveryFailures++;
+        break;
+      case SHUTDOWN:
+        // closed on purpose, not an outage
+        outageStarted = 0;
+        break;
+      default:
+        break;
+    }
+  }
+
+  public synchronized void failover(String details)
+  {
+    add(FAILOVER, details);
+    failovers++;
+    outageBegan();
+  }
+
+  // called once a component is connected again, returns the outage duration in milliseconds or -1 when there was none
+  public synchronized long resumed()
+  {
+    if (outageStarted == 0)
+      return -1;
+    long duration = System.nanoTime() - outageStarted;
+    outageStarted = 0;
+    recoveries++;
+    totalOutageNanos += duration;
+    longestOutage = Math.max(longestOutage, duration);
+    lastOutage = duration;
+    add(RESUMED, null);
+    return TimeUnit.NANOSECONDS.toMillis(duration);
+  }
+
+  private void outageBegan()
+  {
+    if (outageStarted == 0)
+    {
+      outageStarted = System.nanoTime();
+      outages++;
+    }
+  }
+
+  private void add(String state, String details)
+  {
+    transitions[next] = new Transition(System.currentTimeMillis(), state, details);
+    next = (next + 1) % transitions.length;
+    if (size < transitions.length)
+      size++;
+  }
+
+  public synchronized long getOutages()
+  {
+    return outages;
+  }
+
+  public synchronized long getRecoveries()
+  {
+    return recoveries;
+  }
+
+  public synchronized long getRecoveryFailures()
+  {
+    return recoveryFailures;
+  }
+
+  public synchronized long getFailovers()
+  {
+    return failovers;
+  }
+
+  public synchronized boolean isInOutage()
+  {
+    return outageStarted != 0;
+  }
+
+  // milliseconds, mean time to recovery over every completed outage
+  public synchronized long getMeanTimeToRecovery()
+  {
+    return (recoveries > 0) ? TimeUnit.NANOSECONDS.toMillis(totalOutageNanos / recoveries) : -1;
+  }
+
+  public synchronized long getLastOutageDuration()
+  {
+    return (lastOutage >= 0) ? TimeUnit.NANOSECONDS.toMillis(lastOutage) : -1;
+  }
+
+  public synchronized long getLongestOutageDuration()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(longestOutage);
+  }
+
+  // includes the outage in progress, if any
+  public synchronized long getTotalOutageDuration()
+  {
+    long total = totalOutageNanos;
+    if (outageStarted != 0)
+      total += System.nanoTime() - outageStarted;
+    return TimeUnit.NANOSECONDS.toMillis(total);
+  }
+
+  // oldest first
+  public synchronized String[] getHistory()
+  {
+    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    String[] history = new String[size];
+    int first = (next - size + transitions.length) % transitions.length;
+    for (int i = 0; i < size; i++)
+    {
+      Transition transition = transitions[(first + i) % transitions.length];
+      String entry = format.format(new Date(transition.time)) + " " + transition.state;
+      history[i] = (transition.details != null && !transition.details.isEmpty()) ? entry + " " + transition.details : entry;
+    }
+    return history;
+  }
+
+  private static class Transition
+  {
+    private final long   time;
+    private final String state;
+    private final String details;
+
+    Transition(long time, String state, String details)
+    {
+      this.time = time;
+      this.state = state;
+      this.details = details;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.io.IOException;
+import java.net.Socket;
+
+import com.esri.ges.core.validation.Validatable;
+import com.esri.ges.core.validation.ValidationException;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.util.Converter;
+import com.esri.ges.util.Validator;
+import com.rabbitmq.client.ConnectionFactory;
+
+public class RabbitMQConnectionTuning implements Validatable
+{
+  private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(RabbitMQConnectionTuning.class);
+  private RabbitMQTuningProfile     profile;
+  private int                       heartbeat;
+  private int                       frameMax;
+  private int                       channelMax;
+  private boolean                   tcpNoDelay;
+  private int                       sendBufferSize;
+  private int                       receiveBufferSize;
+  private int                       connectionTimeout;
+
+  public RabbitMQConnectionTuning()
+  {
+    this(null, null, null, null, null, null, null, null);
+  }
+
+  public RabbitMQConnectionTuning(String profile, String heartbeat, String frameMax, String channelMax, String tcpNoDelay, String sendBufferSize, String receiveBufferSize, String connectionTimeout)
+  {
+    // the profile supplies the defaults, any explicit value overrides it
+    this.profile = Validator.valueOfIgnoreCase(RabbitMQTuningProfile.class, profile, RabbitMQTuningProfile.Default);
+    this.heartbeat = Converter.convertToInteger(heartbeat, this.profile.getHeartbeat());
+    this.frameMax = Converter.convertToInteger(frameMax, this.profile.getFrameMax());
+    this.channelMax = Converter.convertToInteger(channelMax, this.profile.getChannelMax());
+    this.tcpNoDelay = Converter.convertToBoolean(tcpNoDelay, this.profile.isTcpNoDelay());
+    this.sendBufferSize = Converter.convertToInteger(sendBufferSize, this.profile.getSendBufferSize());
+    this.receiveBufferSize = Converter.convertToInteger(receiveBufferSize, this.profile.getReceiveBufferSize());
+    this.connectionTimeout = Converter.convertToInteger(connectionTimeout, this.profile.getConnectionTimeout());
+  }
+
+  public RabbitMQTuningProfile getProfile()
+  {
+    return profile;
+  }
+
+  public int getHeartbeat()
+  {
+    return heartbeat;
+  }
+
+  public int getFrameMax()
+  {
+    return frameMax;
+  }
+
+  public int getChannelMax()
+  {
+    return channelMax;
+  }
+
+  public boolean isTcpNoDelay()
+  {
+    return tcpNoDelay;
+  }
+
+  public int getSendBufferSize()
+  {
+    return sendBufferSize;
+  }
+
+  public int getReceiveBufferSize()
+  {
+    return receiveBufferSize;
+  }
+
+  public int getConnectionTimeout()
+  {
+    return connectionTimeout;
+  }
+
+  public void apply(ConnectionFactory factory)
+  {
+    factory.setRequestedHeartbeat(heartbeat);
+    factory.setRequestedFrameMax(frameMax);
+    factory.setRequestedChannelMax(channelMax);
+    factory.setConnectionTimeout(connectionTimeout);
+  }
+
+  // called before connect() so large receive buffers can still negotiate window scaling
+  public void configure(Socket socket) throws IOException
+  {
+    socket.setTcpNoDelay(tcpNoDelay);
+    if (sendBufferSize > 0)
+      socket.setSendBufferSize(sendBufferSize);
+    if (receiveBufferSize > 0)
+      socket.setReceiveBufferSize(receiveBufferSize);
+  }
+
+  @Override
+  public void validate() throws ValidationException
+  {
+    if (heartbeat < 0 || channelMax < 0 || sendBufferSize < 0 || receiveBufferSize < 0 || connectionTimeout < 0)
+      throw new ValidationException(LOGGER.translate("CONNECTION_TUNING_VALIDATE_ERROR"));
+    // AMQP 0-9-1 does not allow frames smaller than 4096 bytes, 0 means no limit
+    if (frameMax < 0 || (frameMax > 0 && frameMax < 4096))
+      throw new ValidationException(LOGGER.translate("CONNECTION_TUNING_VALIDATE_ERROR"));
+  }
+}
@@ -25,16 +25,40 @@
 package com.esri.geoevent.transport.rabbitmq;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 import com.esri.ges.framework.i18n.BundleLogger;
 import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
 
 public class RabbitMQConsumer extends RabbitMQConnectionBroker.RabbitMQComponentBase
 {
-  private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(RabbitMQConsumer.class);
-  private RabbitMQQueueingConsumer  consumer;
-  private RabbitMQQueue             queue;
-  private int                       prefetchCount;
+  private static final BundleLogger            LOGGER             = BundleLoggerFactory.getLogger(RabbitMQConsumer.class);
+  private RabbitMQQueueingConsumer             consumer;
+  private RabbitMQQueue                        queue;
+  private int                                  prefetchCount;
+  private int                                  priority;
+  private RabbitMQTransportMetrics             metrics;
+  private volatile long                        clockSkewTolerance = 1000;
+  // sampling the queue on its own channel keeps a failed passive declare from closing the consuming channel
+  private volatile Channel                     probeChannel;
+  private volatile RabbitMQCaptureWriter       capture;
+  // stream queues only, the offset of the message being processed becomes the checkpoint once it is done
+  private volatile RabbitMQStreamCheckpoint    checkpoint;
+  private long                                 pendingOffset      = -1;
+  private int                                  unacknowledged     = 0;
+  // the broker keeps the credit a stream consumer was started with, the acknowledgements have to follow that and not a later prefetch
+  private int                                  streamPrefetch     = 1;
+  // every shard after the first is consumed on a channel of its own, all of them feed the first consumer's delivery queue
+  private final List<RabbitMQQueueingConsumer> shardConsumers     = new ArrayList<RabbitMQQueueingConsumer>();
 
   public RabbitMQConsumer(RabbitMQConnectionInfo connectionInfo, RabbitMQExchange exchange, RabbitMQQueue queue)
   {
@@ -43,19 +67,101 @@ public class RabbitMQConsumer extends RabbitMQConnectionBroker.RabbitMQComponent
     this.prefetchCount = 1;
   }
 
-  public void setPrefetchCount(int value)
+  // only stream consumers acknowledge, the broker does not limit the auto-acknowledged classic and shard consumers;
+  // a running stream consumer keeps the credit it was started with, so a change applies from its next start
+  public synchronized void setPrefetchCount(int value)
   {
     this.prefetchCount = value;
   }
 
+  // applies from the next start, the broker only delivers to lower priority consumers while the higher ones are blocked
+  public synchronized void setPriority(int value)
+  {
+    this.priority = value;
+  }
+
+  public boolean isSingleActiveConsumer()
+  {
+    return queue.isSingleActiveConsumer();
+  }
+
+  public int getShardCount()
+  {
+    return queue.getShardCount();
+  }
+
+  // basic.consume arguments, null when the consumer has the default priority
+  private Map<String, Object> consumeArguments()
+  {
+    if (priority == 0)
+      return null;
+    return Collections.<String, Object>singletonMap("x-priority", priority);
+  }
+
+  public void setMetrics(RabbitMQTransportMetrics metrics)
+  {
+    this.metrics = metrics;
+  }
+
+  public void setClockSkewTolerance(long millis)
+  {
+    this.clockSkewTolerance = millis;
+  }
+
+  public void setCapture(RabbitMQCaptureWriter capture)
+  {
+    this.capture = capture;
+  }
+
+  public void setCheckpoint(RabbitMQStreamCheckpoint checkpoint)
+  {
+    this.checkpoint = checkpoint;
+  }
+
+  public String getQueueName()
+  {
+    return queue.getName();
+  }
+
+  // deliveries pushed to this node but not handed on yet, auto-acknowledged messages wait here instead of on the broker
+  public int getLocalBacklog()
+  {
+    RabbitMQQueueingConsumer current = consumer;
+    return (current != null) ? current.getDeliveryQueue().size() : 0;
+  }
+
+  public AMQP.Queue.DeclareOk probeQueue() throws IOException, RabbitMQTransportException
+  {
+    Channel probe = probeChannel;
+    if (probe == null || !probe.isOpen())
+      probeChannel = probe = createChannel();
+    if (!queue.isSharded())
+      return probe.queueDeclarePassive(queue.getName());
+    // the shards together are the queue
+    int messages = 0;
+    int consumers = 0;
+    for (int i = 0; i < queue.getShardCount(); i++)
+    {
+      AMQP.Queue.DeclareOk sample = probe.queueDeclarePassive(queue.getShard(i).getName());
+      messages += sample.getMessageCount();
+      consumers += sample.getConsumerCount();
+    }
+    return new AMQP.Queue.DeclareOk.Builder().queue(queue.getName()).messageCount(messages).consumerCount(consumers).build();
+  }
+
   @Override
   protected synchronized void init() throws RabbitMQTransportException
   {
     super.init();
     try
     {
-      channel.queueDeclare(queue.getName(), queue.isDurable(), queue.isExclusive(), queue.isAutoDelete(), null);
-      channel.queueBind(queue.getName(), exchange.getName(), exchange.getRoutingKey());
+      for (int i = 0; i < queue.getShardCount(); i++)
+      {
+        RabbitMQQueue shard = queue.getShard(i);
+        getTopologyCache().declareQueue(channel, shard, passiveDeclare);
+        getTopologyCache().bindQueue(channel, shard, exchange, queue.isSharded() ? queue.getShardBindingKey(i) : exchange.getRoutingKey(), passiveDeclare);
+      }
+      // QoS belongs to the channel and is not cached
       channel.basicQos(prefetchCount);
     }
     catch (IOException e)
@@ -66,8 +172,14 @@ public class RabbitMQConsumer extends RabbitMQConnectionBroker.RabbitMQComponent
     }
     try
     {
-      consumer = new RabbitMQQueueingConsumer(channel);
-      channel.basicConsume(queue.getName(), true, consumer);
+      String first = queue.getShard(0).getName();
+      consumer = new RabbitMQQueueingConsumer(channel, first);
+      if (queue.isStream())
+        consumeStream();
+      else
+        channel.basicConsume(first, true, "", false, false, consumeArguments(), consumer);
+      for (int i = 1; i < queue.getShardCount(); i++)
+        consumeShard(queue.getShard(i).getName());
     }
     catch (IOException e)
     {
@@ -77,13 +189,74 @@ public class RabbitMQConsumer extends RabbitMQConnectionBroker.RabbitMQComponent
     }
   }
 
+  // streams are read with acknowledgements and from an offset, the one after the checkpoint once there is one
+  private void consumeStream() throws IOException
+  {
+    RabbitMQStreamCheckpoint current = checkpoint;
+    Object offset = (current != null && current.getOffset() >= 0) ? Long.valueOf(current.getOffset() + 1) : queue.getStreamOffset();
+    pendingOffset = -1;
+    unacknowledged = 0;
+    streamPrefetch = prefetchCount;
+    LOGGER.info("STREAM_CONSUME_FROM", queue.getName(), offset);
+    Map<String, Object> arguments = new HashMap<String, Object>();
+    arguments.put("x-stream-offset", offset);
+    if (priority != 0)
+      arguments.put("x-priority", priority);
+    channel.basicConsume(queue.getName(), false, "", false, false, arguments, consumer);
+  }
+
+  private void consumeShard(String shardName) throws IOException, RabbitMQTransportException
+  {
+    final Channel shardChannel = createChannel();
+    shardChannel.addShutdownListener(new ShutdownListener()
+      {
+        @Override
+        public void shutdownCompleted(ShutdownSignalException cause)
+        {
+          if (!cause.isInitiatedByApplication())
+            shardChannelClosed(shardChannel, cause.getMessage());
+        }
+      });
+    shardChannel.basicQos(prefetchCount);
+    RabbitMQQueueingConsumer shardConsumer = new RabbitMQQueueingConsumer(shardChannel, shardName, consumer.getDeliveryQueue());
+    shardConsumers.add(shardConsumer);
+    shardChannel.basicConsume(shardName, true, "", false, false, consumeArguments(), shardConsumer);
+  }
+
+  // losing any shard takes the whole consumer down, as losing the consuming channel does
+  private synchronized void shardChannelClosed(Channel shardChannel, String reason)
+  {
+    for (RabbitMQQueueingConsumer shardConsumer : shardConsumers)
+    {
+      if (shardConsumer.getChannel() == shardChannel)
+      {
+        getTopologyCache().invalidate();
+        disconnect(reason);
+        return;
+      }
+    }
+  }
+
+  @Override
+  synchronized void attach(Channel channel)
+  {
+    super.attach(channel);
+    consumer = new RabbitMQQueueingConsumer(channel, queue.getName());
+  }
+
+  RabbitMQQueueingConsumer getQueueingConsumer()
+  {
+    return consumer;
+  }
+
   public byte[] receive() throws RabbitMQTransportException
   {
+    RabbitMQQueueingConsumer current = consumer;
     RabbitMQQueueingConsumer.Delivery delivery = null;
     try
     {
       LOGGER.trace("Receive next delivery");
-      delivery = consumer.nextDelivery(100);
+      delivery = current.nextDelivery(100);
       LOGGER.trace("Returned next delivery");
     }
     catch (Exception e)
@@ -92,19 +265,70 @@ public class RabbitMQConsumer extends RabbitMQConnectionBroker.RabbitMQComponent
       LOGGER.error("Exception in receiving data", e);
     }
     
-    if (delivery != null)  {
-    	LOGGER.info("Consumer delivers " + delivery.getBody().length + " bytes.");
-    	LOGGER.info("Body: " + new String(delivery.getBody()));
-    } else {
-    	LOGGER.info("Consumer.nextDelivery > queue.poll returns null");
-    }          
-    
+    if (delivery != null && metrics != null)
+    {
+      metrics.recordHandoff(System.nanoTime() - delivery.getReceived());
+      if (delivery.getEnvelope().isRedeliver())
+        metrics.messageRedelivered();
+      recordTransit(delivery);
+    }
+    if (delivery != null && queue.isStream())
+      streamDelivered(current, delivery);
+    RabbitMQCaptureWriter writer = capture;
+    if (delivery != null && writer != null)
+      writer.append(delivery.getReceived(), delivery.getEnvelope().getRoutingKey(), delivery.getProperties().getHeaders(), delivery.getBody());
+
     return (delivery != null) ? delivery.getBody() : null;
   }
 
+  // stream acknowledgements only return credit, so they go out in groups of half the prefetch on the delivering channel
+  private void streamDelivered(RabbitMQQueueingConsumer current, RabbitMQQueueingConsumer.Delivery delivery)
+  {
+    Map<String, Object> headers = delivery.getProperties().getHeaders();
+    Object offset = (headers != null) ? headers.get("x-stream-offset") : null;
+    if (offset instanceof Number)
+      pendingOffset = ((Number) offset).longValue();
+    if (++unacknowledged >= Math.max(1, streamPrefetch / 2))
+    {
+      unacknowledged = 0;
+      try
+      {
+        current.getChannel().basicAck(delivery.getEnvelope().getDeliveryTag(), true);
+      }
+      catch (IOException | RuntimeException e)
+      {
+        LOGGER.debug("STREAM_ACK_ERROR", e.getMessage());
+      }
+    }
+  }
+
+  // called once the last received message has been handed on, it then counts as processed for the checkpoint
+  public void commit()
+  {
+    RabbitMQStreamCheckpoint current = checkpoint;
+    if (current != null && pendingOffset >= 0)
+      current.update(pendingOffset);
+  }
+
+  private void recordTransit(RabbitMQQueueingConsumer.Delivery delivery)
+  {
+    Map<String, Object> headers = delivery.getProperties().getHeaders();
+    Object published = (headers != null) ? headers.get(RabbitMQProducer.PUBLISH_TIMESTAMP_HEADER) : null;
+    if (published instanceof Number)
+    {
+      long transit = RabbitMQProducer.currentTimeMicros() - ((Number) published).longValue();
+      // clocks of different nodes may disagree a little, beyond the tolerance the sample is meaningless
+      if (transit < -clockSkewTolerance * 1000)
+        metrics.clockSkewDetected();
+      else
+        metrics.recordTransit(Math.max(0, transit) * 1000);
+    }
+  }
+
   @Override
   protected synchronized void disconnect(String reason)
   {
+    closeShardConsumers();
     if (connected)
     {
       if (channel != null)
@@ -121,6 +345,14 @@ public class RabbitMQConsumer extends RabbitMQConnectionBroker.RabbitMQComponent
             {
               LOGGER.error("CONSUMER_CANCEL_ERROR", e.getMessage(), e);
             }
+            // cancelling the last consumer removes an auto-delete queue, and with it the binding
+            if (queue.isAutoDelete())
+            {
+              for (int i = 0; i < queue.getShardCount(); i++)
+                getTopologyCache().forgetQueue(queue.getShard(i), exchange);
+              if (exchange.isAutoDelete())
+                getTopologyCache().forgetExchange(exchange);
+            }
             try
             {
               Thread.sleep(1000);
@@ -134,6 +366,47 @@ public class RabbitMQConsumer extends RabbitMQConnectionBroker.RabbitMQComponent
         }
       }
     }
+    closeProbeChannel();
     super.disconnect(reason);
   }
+
+  private void closeShardConsumers()
+  {
+    List<RabbitMQQueueingConsumer> closing = new ArrayList<RabbitMQQueueingConsumer>(shardConsumers);
+    shardConsumers.clear();
+    for (RabbitMQQueueingConsumer shardConsumer : closing)
+    {
+      Channel shardChannel = shardConsumer.getChannel();
+      if (shardChannel.isOpen())
+      {
+        try
+        {
+          if (shardConsumer.getConsumerTag() != null)
+            shardChannel.basicCancel(shardConsumer.getConsumerTag());
+          shardChannel.close();
+        }
+        catch (IOException | TimeoutException e)
+        {
+          LOGGER.debug("CHANNEL_CLOSE_ERROR", e.getMessage());
+        }
+      }
+    }
+  }
+
+  private void closeProbeChannel()
+  {
+    Channel probe = probeChannel;
+    probeChannel = null;
+    if (probe != null && probe.isOpen())
+    {
+      try
+      {
+        probe.close();
+      }
+      catch (IOException | TimeoutException e)
+      {
+        LOGGER.debug("CHANNEL_CLOSE_ERROR", e.getMessage());
+      }
+    }
+  }
 }
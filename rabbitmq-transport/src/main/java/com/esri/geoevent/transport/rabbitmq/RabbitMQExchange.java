@@ -24,6 +24,9 @@
 
 package com.esri.geoevent.transport.rabbitmq;
 
+import java.util.Collections;
+import java.util.Map;
+
 import com.esri.ges.core.validation.Validatable;
 import com.esri.ges.core.validation.ValidationException;
 import com.esri.ges.framework.i18n.BundleLogger;
@@ -33,7 +36,31 @@ import com.esri.ges.util.Validator;
 
 enum RabbitMQExchangeType
 {
-  direct, fanout, topic
+  direct, fanout, topic, consistentHash("x-consistent-hash"), modulusHash("x-modulus-hash");
+
+  private final String amqpType;
+
+  private RabbitMQExchangeType()
+  {
+    this(null);
+  }
+
+  private RabbitMQExchangeType(String amqpType)
+  {
+    this.amqpType = amqpType;
+  }
+
+  // the plugin exchange types are not valid enum names
+  public String getAmqpType()
+  {
+    return (amqpType != null) ? amqpType : name();
+  }
+
+  // hash exchanges spread messages over their bound queues by a hash of the routing key
+  public boolean isHash()
+  {
+    return this == consistentHash || this == modulusHash;
+  }
 }
 
 public class RabbitMQExchange implements Validatable
@@ -44,14 +71,21 @@ public class RabbitMQExchange implements Validatable
   private RabbitMQDurability        durability;
   private boolean                   autoDelete;
   private String                    routingKey;
+  private String                    alternateExchange;
 
   public RabbitMQExchange(String name, String type, String durability, String autoDelete, String routingKey)
+  {
+    this(name, type, durability, autoDelete, routingKey, null);
+  }
+
+  public RabbitMQExchange(String name, String type, String durability, String autoDelete, String routingKey, String alternateExchange)
   {
     this.name = name;
     this.type = Validator.valueOfIgnoreCase(RabbitMQExchangeType.class, type, RabbitMQExchangeType.direct);
     this.durability = Validator.valueOfIgnoreCase(RabbitMQDurability.class, durability, RabbitMQDurability.Transient);
     this.autoDelete = Converter.convertToBoolean(autoDelete, true);
     this.routingKey = routingKey;
+    this.alternateExchange = (alternateExchange != null) ? alternateExchange.trim() : "";
   }
 
   public String getName()
@@ -79,6 +113,19 @@ public class RabbitMQExchange implements Validatable
     return routingKey;
   }
 
+  public String getAlternateExchange()
+  {
+    return alternateExchange;
+  }
+
+  // declaration arguments, null when no alternate exchange takes the unroutable messages
+  public Map<String, Object> getArguments()
+  {
+    if (alternateExchange.isEmpty())
+      return null;
+    return Collections.<String, Object>singletonMap("alternate-exchange", alternateExchange);
+  }
+
   @Override
   public void validate() throws ValidationException
   {
@@ -0,0 +1,127 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+
+public final class RabbitMQFlightRecorder
+{
+  private static final BundleLogger LOGGER   = BundleLoggerFactory.getLogger(RabbitMQFlightRecorder.class);
+  private static final Recorder     NOOP     = new Recorder()
+    {
+      @Override
+      public Object beginPublish()
+      {
+        return null;
+      }
+
+      @Override
+      public Object beginDelivery()
+      {
+        return null;
+      }
+
+      @Override
+      public Object beginDispatch()
+      {
+        return null;
+      }
+
+      @Override
+      public void commit(Object event, String transport, String destination, int size)
+      {
+        ;
+      }
+
+      @Override
+      public void statusChanged(String host, RabbitMQConnectionStatus status, String details)
+      {
+        ;
+      }
+    };
+  // resolved once, a JVM without Flight Recorder or with it switched off pays for a single monomorphic call
+  private static final Recorder     RECORDER = createRecorder();
+
+  private RabbitMQFlightRecorder()
+  {
+  }
+
+  public static Object beginPublish()
+  {
+    return RECORDER.beginPublish();
+  }
+
+  public static Object beginDelivery()
+  {
+    return RECORDER.beginDelivery();
+  }
+
+  public static Object beginDispatch()
+  {
+    return RECORDER.beginDispatch();
+  }
+
+  public static void commit(Object event, String transport, String destination, int size)
+  {
+    if (event != null)
+      RECORDER.commit(event, transport, destination, size);
+  }
+
+  public static void statusChanged(String host, RabbitMQConnectionStatus status, String details)
+  {
+    RECORDER.statusChanged(host, status, details);
+  }
+
+  private static Recorder createRecorder()
+  {
+    if (!Boolean.parseBoolean(System.getProperty("com.esri.geoevent.transport.rabbitmq.flightRecorder", "true")))
+      return NOOP;
+    try
+    {
+      // loaded by name so that nothing in this class links against jdk.jfr
+      Class<?> type = Class.forName(RabbitMQFlightRecorder.class.getName().replace("FlightRecorder", "JfrRecorder"), true, RabbitMQFlightRecorder.class.getClassLoader());
+      return (Recorder) type.newInstance();
+    }
+    catch (Throwable th)
+    {
+      LOGGER.debug("FLIGHT_RECORDER_UNAVAILABLE", th.getMessage());
+      return NOOP;
+    }
+  }
+
+  interface Recorder
+  {
+    Object beginPublish();
+
+    Object beginDelivery();
+
+    Object beginDispatch();
+
+    void commit(Object event, String transport, String destination, int size);
+
+    void statusChanged(String host, RabbitMQConnectionStatus status, String details);
+  }
+}
@@ -33,19 +33,36 @@ import com.esri.ges.framework.i18n.BundleLoggerFactory;
 import com.esri.ges.transport.InboundTransportBase;
 import com.esri.ges.transport.TransportDefinition;
 import com.esri.ges.util.Converter;
+import com.esri.ges.util.Validator;
 
+import java.io.File;
 import java.nio.ByteBuffer;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.HashMap;
+import java.util.Map;
 
-public class RabbitMQInboundTransport extends InboundTransportBase implements Runnable, Observer
+public class RabbitMQInboundTransport extends InboundTransportBase implements Runnable, RabbitMQStatusListener, RabbitMQInboundTransportMBean
 {
   private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(RabbitMQInboundTransport.class);
+  // changing any of these needs a new connection, the remaining settings are applied to the running consumer
+  private static final String[]     CONNECTION_PROPERTIES = {"host", "port", "virtualHost", "username", "password", "ssl", "tlsProtocol", "trustStore", "trustStorePassword", "keyStore", "keyStorePassword", "cipherSuites", "verifyHostname", "warmStandby", "standbyHost", "tuningProfile", "heartbeat", "frameMax", "channelMax", "tcpNoDelay", "socketSendBufferSize", "socketReceiveBufferSize", "connectionTimeout", "exchangeName", "exchangeType", "exchangeDurability", "exchangeAutoDelete", "routingKey", "passiveDeclare", "queueName", "queueDurability", "queueExclusive", "queueAutoDelete", "shardCount", "shardWeights", "queueType", "streamStart", "streamStartValue", "queueMode", "maxLength", "maxLengthBytes", "overflow", "messageTtl", "singleActiveConsumer", "consumerPriority", "alternateExchange", "checkpointDirectory", "checkpointInterval"};
   private RabbitMQConnectionInfo    connectionInfo;
   private RabbitMQExchange          exchange;
   private RabbitMQQueue             queue;
   private int                       prefetchCount;
+  private int                       consumerPriority;
+  private boolean                   passiveDeclare;
+  private long                      clockSkewTolerance;
+  private int                       queueProbeInterval;
+  private int                       queueLagThreshold;
+  private RabbitMQQueueDepthProbe   queueProbe;
+  private RabbitMQCaptureWriter     capture;
+  private File                      checkpointDirectory;
+  private int                       checkpointInterval;
+  private RabbitMQStreamCheckpoint  checkpoint;
+  private volatile RabbitMQFraming  framing = RabbitMQFraming.None;
+  private Map<String, String>       connectionProperties;
   private RabbitMQConsumer          consumer;
+  private RabbitMQTransportMetrics  metrics = new RabbitMQTransportMetrics("Inbound");
 
   public RabbitMQInboundTransport(TransportDefinition definition) throws ComponentException
   {
@@ -66,23 +83,67 @@ public class RabbitMQInboundTransport extends InboundTransportBase implements Ru
     {
       try
       {
-        byte[] bytes = consumer.receive();
-        if (bytes != null && bytes.length > 0)
-        {
-          ByteBuffer bb = ByteBuffer.allocate(bytes.length);
-          bb.put(bytes);
-          ((java.nio.Buffer) bb).flip();
-          byteListener.receive(bb, "");
-          ((java.nio.Buffer) bb).clear();
-        }
+        poll();
       }
       catch (Exception e)
       {
+        metrics.errorOccurred();
         LOGGER.error("", e);
       }
     }
   }
 
+  // one receive and dispatch of the transport loop, also the entry point for driving the delivery path in isolation
+  void poll() throws RabbitMQTransportException
+  {
+    RabbitMQConsumer current = consumer;
+    byte[] bytes = current.receive();
+    if (bytes != null && bytes.length > 0 && framing == RabbitMQFraming.LengthPrefixed)
+    {
+      dispatchRecords(current, bytes);
+      current.commit();
+    }
+    else if (bytes != null && bytes.length > 0)
+    {
+      ByteBuffer bb = ByteBuffer.allocate(bytes.length);
+      bb.put(bytes);
+      ((java.nio.Buffer) bb).flip();
+      Object event = RabbitMQFlightRecorder.beginDispatch();
+      long start = System.nanoTime();
+      byteListener.receive(bb, "");
+      RabbitMQFlightRecorder.commit(event, "Inbound", current.getQueueName(), bytes.length);
+      metrics.recordReceive(System.nanoTime() - start);
+      metrics.messageProcessed(bytes.length);
+      ((java.nio.Buffer) bb).clear();
+      current.commit();
+    }
+    else if (bytes != null)
+    {
+      metrics.messageDropped();
+      current.commit();
+    }
+  }
+
+  // every record is handed to the adapter as a slice of the delivered body, a malformed length drops the rest of it
+  private void dispatchRecords(RabbitMQConsumer current, byte[] bytes)
+  {
+    RabbitMQRecordSplitter splitter = new RabbitMQRecordSplitter(bytes);
+    Object event = RabbitMQFlightRecorder.beginDispatch();
+    long start = System.nanoTime();
+    ByteBuffer record;
+    while ((record = splitter.next()) != null)
+      byteListener.receive(record, "");
+    RabbitMQFlightRecorder.commit(event, "Inbound", current.getQueueName(), bytes.length);
+    metrics.recordReceive(System.nanoTime() - start);
+    metrics.messageProcessed(bytes.length);
+    metrics.recordsFramed(splitter.getRecords());
+    if (splitter.isMalformed())
+    {
+      metrics.malformedFrame();
+      LOGGER.debug("FRAMING_MALFORMED", current.getQueueName(), splitter.getMalformedAt(), bytes.length, splitter.getRecords());
+    }
+  }
+
   @SuppressWarnings("incomplete-switch")
   @Override
   public synchronized void start() throws RunningException
@@ -107,17 +168,11 @@ public class RabbitMQInboundTransport extends InboundTransportBase implements Ru
   @Override
   public void afterPropertiesSet()
   {
-    shutdownConsumer();
-    String password;
-    try
-    {
-      password = getProperty("password").getDecryptedValue();
-    }
-    catch (Exception e)
-    {
-      password = getProperty("password").getValueAsString();
-    }
-
+    Map<String, String> properties = getPropertyValues(CONNECTION_PROPERTIES);
+    if (!properties.equals(connectionProperties))
+      shutdownConsumer();
+    connectionProperties = properties;
+    String password = getPassword("password");
     String host = getProperty("host").getValueAsString();
     String port = getProperty("port").getValueAsString();
     String virtualHost = getProperty("virtualHost").getValueAsString();
@@ -125,25 +180,206 @@ public class RabbitMQInboundTransport extends InboundTransportBase implements Ru
       virtualHost = "/";
     String username = getProperty("username").getValueAsString();
     String ssl = getProperty("ssl").getValueAsString();
-    connectionInfo = new RabbitMQConnectionInfo(host, port, virtualHost, username, password, ssl);
+    String tuningProfile = getProperty("tuningProfile").getValueAsString();
+    String heartbeat = getProperty("heartbeat").getValueAsString();
+    String frameMax = getProperty("frameMax").getValueAsString();
+    String channelMax = getProperty("channelMax").getValueAsString();
+    String tcpNoDelay = getProperty("tcpNoDelay").getValueAsString();
+    String socketSendBufferSize = getProperty("socketSendBufferSize").getValueAsString();
+    String socketReceiveBufferSize = getProperty("socketReceiveBufferSize").getValueAsString();
+    String connectionTimeout = getProperty("connectionTimeout").getValueAsString();
+    RabbitMQConnectionTuning tuning = new RabbitMQConnectionTuning(tuningProfile, heartbeat, frameMax, channelMax, tcpNoDelay, socketSendBufferSize, socketReceiveBufferSize, connectionTimeout);
+    String tlsProtocol = getProperty("tlsProtocol").getValueAsString();
+    String trustStore = getProperty("trustStore").getValueAsString();
+    String trustStorePassword = getPassword("trustStorePassword");
+    String keyStore = getProperty("keyStore").getValueAsString();
+    String keyStorePassword = getPassword("keyStorePassword");
+    String cipherSuites = getProperty("cipherSuites").getValueAsString();
+    String verifyHostname = getProperty("verifyHostname").getValueAsString();
+    RabbitMQTlsSettings tls = new RabbitMQTlsSettings(tlsProtocol, trustStore, trustStorePassword, keyStore, keyStorePassword, cipherSuites, verifyHostname);
+    String warmStandby = getProperty("warmStandby").getValueAsString();
+    String standbyHost = getProperty("standbyHost").getValueAsString();
+    connectionInfo = new RabbitMQConnectionInfo(host, port, virtualHost, username, password, ssl, tuning, tls, warmStandby, standbyHost);
 
     String exchangeName = getProperty("exchangeName").getValueAsString();
     String exchangeType = getProperty("exchangeType").getValueAsString();
     String exchangeDurability = getProperty("exchangeDurability").getValueAsString();
     String exchangeAutoDelete = getProperty("exchangeAutoDelete").getValueAsString();
     String routingKey = getProperty("routingKey").getValueAsString();
-    exchange = new RabbitMQExchange(exchangeName, exchangeType, exchangeDurability, exchangeAutoDelete, routingKey);
+    String alternateExchange = getProperty("alternateExchange").getValueAsString();
+    exchange = new RabbitMQExchange(exchangeName, exchangeType, exchangeDurability, exchangeAutoDelete, routingKey, alternateExchange);
+    passiveDeclare = Converter.convertToBoolean(getProperty("passiveDeclare").getValueAsString(), false);
 
     String queueName = getProperty("queueName").getValueAsString();
     String queueDurability = getProperty("queueDurability").getValueAsString();
     String queueExclusive = getProperty("queueExclusive").getValueAsString();
     String queueAutoDelete = getProperty("queueAutoDelete").getValueAsString();
-    queue = new RabbitMQQueue(queueName, queueDurability, queueExclusive, queueAutoDelete);
+    String shardCount = getProperty("shardCount").getValueAsString();
+    String shardWeights = getProperty("shardWeights").getValueAsString();
+    String queueType = getProperty("queueType").getValueAsString();
+    String streamStart = getProperty("streamStart").getValueAsString();
+    String streamStartValue = getProperty("streamStartValue").getValueAsString();
+    String queueMode = getProperty("queueMode").getValueAsString();
+    String maxLength = getProperty("maxLength").getValueAsString();
+    String maxLengthBytes = getProperty("maxLengthBytes").getValueAsString();
+    String overflow = getProperty("overflow").getValueAsString();
+    String messageTtl = getProperty("messageTtl").getValueAsString();
+    String singleActiveConsumer = getProperty("singleActiveConsumer").getValueAsString();
+    RabbitMQQueueArguments queueArguments = new RabbitMQQueueArguments(queueMode, maxLength, maxLengthBytes, overflow, messageTtl, singleActiveConsumer);
+    queue = new RabbitMQQueue(queueName, queueDurability, queueExclusive, queueAutoDelete, shardCount, shardWeights, queueType, streamStart, streamStartValue, queueArguments);
+    String directory = getProperty("checkpointDirectory").getValueAsString();
+    checkpointDirectory = (directory != null && !directory.trim().isEmpty()) ? new File(directory.trim()) : null;
+    checkpointInterval = Converter.convertToInteger(getProperty("checkpointInterval").getValueAsString(), 1000);
+    consumerPriority = Converter.convertToInteger(getProperty("consumerPriority").getValueAsString(), 0);
 
-    prefetchCount = Converter.convertToInteger(getProperty("prefetchCount").getValueAsString(), 1);
+    setPrefetchCount(Converter.convertToInteger(getProperty("prefetchCount").getValueAsString(), 1));
+    setClockSkewTolerance(Converter.convertToInteger(getProperty("clockSkewTolerance").getValueAsString(), 1000));
+    setQueueProbeInterval(Converter.convertToInteger(getProperty("queueProbeInterval").getValueAsString(), 30));
+    setQueueLagThreshold(Converter.convertToInteger(getProperty("queueLagThreshold").getValueAsString(), 0));
+    setFraming(getProperty("framing").getValueAsString());
+    setCapture(getProperty("captureDirectory").getValueAsString(), Converter.convertToInteger(getProperty("captureSegmentSize").getValueAsString(), 64));
+    metrics.register(queueName, this);
     super.afterPropertiesSet();
   }
 
+  private Map<String, String> getPropertyValues(String... names)
+  {
+    Map<String, String> values = new HashMap<String, String>();
+    for (String name : names)
+      values.put(name, getProperty(name).getValueAsString());
+    return values;
+  }
+
+  private String getPassword(String name)
+  {
+    try
+    {
+      return getProperty(name).getDecryptedValue();
+    }
+    catch (Exception e)
+    {
+      return getProperty(name).getValueAsString();
+    }
+  }
+
+  @Override
+  public synchronized int getPrefetchCount()
+  {
+    return prefetchCount;
+  }
+
+  @Override
+  public synchronized void setPrefetchCount(int value)
+  {
+    prefetchCount = value;
+    if (consumer != null)
+      consumer.setPrefetchCount(value);
+  }
+
+  @Override
+  public synchronized long getClockSkewTolerance()
+  {
+    return clockSkewTolerance;
+  }
+
+  @Override
+  public synchronized void setClockSkewTolerance(long millis)
+  {
+    clockSkewTolerance = millis;
+    if (consumer != null)
+      consumer.setClockSkewTolerance(millis);
+  }
+
+  @Override
+  public synchronized int getQueueProbeInterval()
+  {
+    return queueProbeInterval;
+  }
+
+  @Override
+  public synchronized void setQueueProbeInterval(int seconds)
+  {
+    if (seconds != queueProbeInterval)
+    {
+      queueProbeInterval = seconds;
+      if (queueProbe != null)
+        queueProbe.start(seconds);
+    }
+  }
+
+  @Override
+  public synchronized int getQueueLagThreshold()
+  {
+    return queueLagThreshold;
+  }
+
+  @Override
+  public synchronized void setQueueLagThreshold(int messages)
+  {
+    queueLagThreshold = messages;
+    if (queueProbe != null)
+      queueProbe.setLagThreshold(messages);
+  }
+
+  @Override
+  public String getFraming()
+  {
+    return framing.toString();
+  }
+
+  @Override
+  public void setFraming(String value)
+  {
+    framing = Validator.valueOfIgnoreCase(RabbitMQFraming.class, value, RabbitMQFraming.None);
+  }
+
+  // a new capture is started whenever the directory or segment size changes, an empty directory turns capturing off
+  private synchronized void setCapture(String directory, int segmentMegabytes)
+  {
+    File target = (directory != null && !directory.trim().isEmpty()) ? new File(directory.trim()) : null;
+    int segmentSize = Math.max(1, segmentMegabytes) * 1024 * 1024;
+    if (capture != null && target != null && capture.getDirectory().equals(target) && capture.getSegmentSize() == segmentSize)
+      return;
+    closeCapture();
+    if (target != null)
+    {
+      capture = new RabbitMQCaptureWriter(target, queue.getName(), segmentSize);
+      LOGGER.info("CAPTURE_STARTED", queue.getName(), target.getAbsolutePath());
+    }
+    if (consumer != null)
+      consumer.setCapture(capture);
+  }
+
+  private synchronized void closeCapture()
+  {
+    if (capture != null)
+    {
+      if (consumer != null)
+        consumer.setCapture(null);
+      capture.close();
+      LOGGER.info("CAPTURE_STOPPED", queue.getName(), capture.getRecords());
+      capture = null;
+    }
+  }
+
+  public String getStatusDetails()
+  {
+    RabbitMQConsumer current = consumer;
+    String details = (current != null && current.getStatusDetails() != null) ? current.getStatusDetails() : "";
+    if (metrics.hasQueueSamples())
+      details = append(details, LOGGER.translate("TRANSPORT_IN_QUEUE_DETAILS", metrics.getQueueDepth(), metrics.getLocalBacklog(), metrics.getQueueConsumers(), String.format("%.1f", metrics.getIngressRate()), String.format("%.1f", metrics.getEgressRate()), metrics.getTimeToDrain()));
+    if (metrics.getRole() != null)
+      details = append(details, LOGGER.translate("TRANSPORT_IN_CONSUMER_ROLE_DETAILS", metrics.getRole()));
+    if (metrics.hasTransitSamples())
+      details = append(details, LOGGER.translate("TRANSPORT_IN_TRANSIT_DETAILS", metrics.getTransitLatencyP50(), metrics.getTransitLatencyP99(), metrics.getTransitLatencyP999(), metrics.getOldestMessageAge()));
+    return details;
+  }
+
+  private static String append(String details, String more)
+  {
+    return details.isEmpty() ? more : details + " " + more;
+  }
+
   @Override
   public void validate() throws ValidationException
   {
@@ -151,6 +387,9 @@ public class RabbitMQInboundTransport extends InboundTransportBase implements Ru
     connectionInfo.validate();
     exchange.validate();
     queue.validate();
+    // only a hash exchange spreads messages over the shards, any other type would copy every message to each of them
+    if (queue.isSharded() && !exchange.getType().isHash())
+      throw new ValidationException(LOGGER.translate("QUEUE_SHARD_EXCHANGE_VALIDATE_ERROR", queue.getShardCount(), exchange.getType().getAmqpType()));
   }
 
   private synchronized void connect()
@@ -162,10 +401,24 @@ public class RabbitMQInboundTransport extends InboundTransportBase implements Ru
       if (consumer == null)
       {
         consumer = new RabbitMQConsumer(connectionInfo, exchange, queue);
-        consumer.addObserver(this);
+        consumer.addListener(this, true);
+        // the checkpoint lives as long as the consumer, so a reconnect resumes from the offset reached before it
+        if (queue.isStream())
+        {
+          checkpoint = new RabbitMQStreamCheckpoint(checkpointDirectory, queue.getName(), checkpointInterval);
+          consumer.setCheckpoint(checkpoint);
+        }
       }
       consumer.setPrefetchCount(prefetchCount);
+      consumer.setPriority(consumerPriority);
+      consumer.setMetrics(metrics);
+      metrics.setTimeline(consumer.getTimeline());
+      consumer.setClockSkewTolerance(clockSkewTolerance);
+      consumer.setPassiveDeclare(passiveDeclare);
+      consumer.setCapture(capture);
       consumer.connect();
+      queueProbe = new RabbitMQQueueDepthProbe(consumer, metrics, queueLagThreshold);
+      queueProbe.start(queueProbeInterval);
       new Thread(this).start();
     }
     catch (RabbitMQTransportException e)
@@ -178,66 +431,87 @@ public class RabbitMQInboundTransport extends InboundTransportBase implements Ru
   private synchronized void disconnect(String reason)
   {
     setRunningState(RunningState.STOPPING);
+    if (queueProbe != null)
+    {
+      queueProbe.stop();
+      queueProbe = null;
+    }
     if (consumer != null)
       consumer.disconnect(reason);
+    if (checkpoint != null)
+      checkpoint.flush();
     setErrorMessage(reason);
     setRunningState(RunningState.STOPPED);
   }
 
+  synchronized void attach(RabbitMQConsumer consumer)
+  {
+    this.consumer = consumer;
+  }
+
   private synchronized void shutdownConsumer()
   {
     if (consumer != null)
     {
-      consumer.deleteObserver(this);
+      consumer.removeListener(this);
       consumer.shutdown("");
       consumer = null;
     }
+    if (checkpoint != null)
+    {
+      checkpoint.close();
+      checkpoint = null;
+    }
   }
 
   public void shutdown()
   {
     shutdownConsumer();
+    closeCapture();
+    metrics.unregister();
     super.shutdown();
   }
 
   @Override
-  public void update(Observable observable, Object obj)
+  public void onStatus(RabbitMQConnectionStatus status, String details)
   {
-    if (obj instanceof RabbitMQTransportEvent)
+    switch (status)
     {
-      RabbitMQTransportEvent event = (RabbitMQTransportEvent) obj;
-      switch (event.getStatus())
-      {
-        case CREATED:
-        case RECOVERY:
-          try
-          {
-            start();
-          }
-          catch (RunningException e)
-          {
-            ;
-          }
-          break;
-        case DISCONNECTED:
-          disconnect("");
-          break;
-        case SHUTDOWN:
-          shutdown();
-          break;
-        case RECOVERY_FAILED:
-        case CREATION_FAILED:
-          LOGGER.error(event.getDetails());
-          disconnect(event.getDetails());
-          setRunningState(RunningState.ERROR);
-          break;
-        case RECOVERY_STARTED:
-          break;
-        case RECOVERY_COMPLETED:
-          break;
-        default:
-          break;
-      }
+      case CREATED:
+      case RECOVERY:
+        try
+        {
+          start();
+        }
+        catch (RunningException e)
+        {
+          ;
+        }
+        break;
+      case DISCONNECTED:
+        disconnect("");
+        break;
+      case SHUTDOWN:
+        shutdown();
+        break;
+      case RECOVERY_FAILED:
+      case CREATION_FAILED:
+        LOGGER.error(details);
+        disconnect(details);
+        setRunningState(RunningState.ERROR);
+        break;
+      case RECOVERY_STARTED:
+        break;
+      case RECOVERY_COMPLETED:
+        break;
+      case QUEUE_LAG_EXCEEDED:
+        setErrorMessage(details);
+        break;
+      case QUEUE_LAG_CLEARED:
+        setErrorMessage("");
+        break;
+      default:
+        break;
     }
   }
 }
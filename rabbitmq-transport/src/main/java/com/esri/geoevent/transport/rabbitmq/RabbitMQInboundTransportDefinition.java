@@ -52,6 +52,28 @@ public class RabbitMQInboundTransportDefinition extends TransportDefinitionBase
       propertyDefinitions.put("username", new PropertyDefinition("username", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_USERNAME_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_USERNAME_DESC}", false, false));
       propertyDefinitions.put("password", new PropertyDefinition("password", PropertyType.Password, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_PASSWORD_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_PASSWORD_DESC}", false, false));
       propertyDefinitions.put("ssl", new PropertyDefinition("ssl", PropertyType.Boolean, false, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SSL_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SSL_DESC}", true, false));
+      propertyDefinitions.put("tlsProtocol", new PropertyDefinition("tlsProtocol", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TLS_PROTOCOL_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TLS_PROTOCOL_DESC}", false, false));
+      propertyDefinitions.put("trustStore", new PropertyDefinition("trustStore", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TRUST_STORE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TRUST_STORE_DESC}", false, false));
+      propertyDefinitions.put("trustStorePassword", new PropertyDefinition("trustStorePassword", PropertyType.Password, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TRUST_STORE_PASSWORD_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TRUST_STORE_PASSWORD_DESC}", false, false));
+      propertyDefinitions.put("keyStore", new PropertyDefinition("keyStore", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_KEY_STORE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_KEY_STORE_DESC}", false, false));
+      propertyDefinitions.put("keyStorePassword", new PropertyDefinition("keyStorePassword", PropertyType.Password, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_KEY_STORE_PASSWORD_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_KEY_STORE_PASSWORD_DESC}", false, false));
+      propertyDefinitions.put("cipherSuites", new PropertyDefinition("cipherSuites", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CIPHER_SUITES_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CIPHER_SUITES_DESC}", false, false));
+      propertyDefinitions.put("verifyHostname", new PropertyDefinition("verifyHostname", PropertyType.Boolean, true, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_VERIFY_HOSTNAME_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_VERIFY_HOSTNAME_DESC}", false, false));
+      propertyDefinitions.put("warmStandby", new PropertyDefinition("warmStandby", PropertyType.Boolean, false, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_WARM_STANDBY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_WARM_STANDBY_DESC}", false, false));
+      propertyDefinitions.put("standbyHost", new PropertyDefinition("standbyHost", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_STANDBY_HOST_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_STANDBY_HOST_DESC}", false, false));
+
+      // Connection tuning properties
+      List<LabeledValue> tuningProfileAllowedValues = new ArrayList<LabeledValue>();
+      for (RabbitMQTuningProfile profile : RabbitMQTuningProfile.values())
+        tuningProfileAllowedValues.add(new LabeledValue(profile.toString(), profile.toString()));
+      propertyDefinitions.put("tuningProfile", new PropertyDefinition("tuningProfile", PropertyType.String, RabbitMQTuningProfile.Default.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TUNING_PROFILE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TUNING_PROFILE_DESC}", false, false, tuningProfileAllowedValues));
+      propertyDefinitions.put("heartbeat", new PropertyDefinition("heartbeat", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_HEARTBEAT_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_HEARTBEAT_DESC}", false, false));
+      propertyDefinitions.put("frameMax", new PropertyDefinition("frameMax", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_FRAME_MAX_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_FRAME_MAX_DESC}", false, false));
+      propertyDefinitions.put("channelMax", new PropertyDefinition("channelMax", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CHANNEL_MAX_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CHANNEL_MAX_DESC}", false, false));
+      propertyDefinitions.put("tcpNoDelay", new PropertyDefinition("tcpNoDelay", PropertyType.Boolean, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TCP_NO_DELAY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TCP_NO_DELAY_DESC}", false, false));
+      propertyDefinitions.put("socketSendBufferSize", new PropertyDefinition("socketSendBufferSize", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SOCKET_SEND_BUFFER_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SOCKET_SEND_BUFFER_DESC}", false, false));
+      propertyDefinitions.put("socketReceiveBufferSize", new PropertyDefinition("socketReceiveBufferSize", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SOCKET_RECEIVE_BUFFER_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SOCKET_RECEIVE_BUFFER_DESC}", false, false));
+      propertyDefinitions.put("connectionTimeout", new PropertyDefinition("connectionTimeout", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CONNECTION_TIMEOUT_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CONNECTION_TIMEOUT_DESC}", false, false));
 
       // Exchange properties
       propertyDefinitions.put("exchangeName", new PropertyDefinition("exchangeName", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_NAME_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_NAME_DESC}", true, false));
@@ -60,6 +82,8 @@ public class RabbitMQInboundTransportDefinition extends TransportDefinitionBase
       exchangeTypeAllowedValues.add(new LabeledValue(RabbitMQExchangeType.direct.toString(), RabbitMQExchangeType.direct.toString()));
       exchangeTypeAllowedValues.add(new LabeledValue(RabbitMQExchangeType.fanout.toString(), RabbitMQExchangeType.fanout.toString()));
       exchangeTypeAllowedValues.add(new LabeledValue(RabbitMQExchangeType.topic.toString(), RabbitMQExchangeType.topic.toString()));
+      exchangeTypeAllowedValues.add(new LabeledValue(RabbitMQExchangeType.consistentHash.getAmqpType(), RabbitMQExchangeType.consistentHash.toString()));
+      exchangeTypeAllowedValues.add(new LabeledValue(RabbitMQExchangeType.modulusHash.getAmqpType(), RabbitMQExchangeType.modulusHash.toString()));
       propertyDefinitions.put("exchangeType", new PropertyDefinition("exchangeType", PropertyType.String, RabbitMQExchangeType.direct.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_TYPE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_TYPE_DESC}", true, false, exchangeTypeAllowedValues));
 
       List<LabeledValue> exchangeDurabilityAllowedValues = new ArrayList<LabeledValue>();
@@ -68,6 +92,8 @@ public class RabbitMQInboundTransportDefinition extends TransportDefinitionBase
       propertyDefinitions.put("exchangeDurability", new PropertyDefinition("exchangeDurability", PropertyType.String, RabbitMQDurability.Transient.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_DURABILITY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_DURABILITY_DESC}", true, false, exchangeDurabilityAllowedValues));
 
       propertyDefinitions.put("exchangeAutoDelete", new PropertyDefinition("exchangeAutoDelete", PropertyType.Boolean, "true", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_AUTO_DELETE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_AUTO_DELETE_DESC}", true, false));
+      propertyDefinitions.put("alternateExchange", new PropertyDefinition("alternateExchange", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_ALTERNATE_EXCHANGE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_ALTERNATE_EXCHANGE_DESC}", false, false));
+      propertyDefinitions.put("passiveDeclare", new PropertyDefinition("passiveDeclare", PropertyType.Boolean, "false", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_PASSIVE_DECLARE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_PASSIVE_DECLARE_DESC}", false, false));
 
       // Queue properties
       propertyDefinitions.put("queueName", new PropertyDefinition("queueName", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_NAME_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_NAME_DESC}", true, false));
@@ -80,7 +106,48 @@ public class RabbitMQInboundTransportDefinition extends TransportDefinitionBase
       propertyDefinitions.put("queueExclusive", new PropertyDefinition("queueExclusive", PropertyType.Boolean, "false", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_EXCLUSIVE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_EXCLUSIVE_DESC}", true, false));
       propertyDefinitions.put("queueAutoDelete", new PropertyDefinition("queueAutoDelete", PropertyType.Boolean, "true", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_AUTO_DELETE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_AUTO_DELETE_DESC}", true, false));
 
+      List<LabeledValue> queueTypeAllowedValues = new ArrayList<LabeledValue>();
+      queueTypeAllowedValues.add(new LabeledValue(RabbitMQQueueType.Classic.toString(), RabbitMQQueueType.Classic.toString()));
+      queueTypeAllowedValues.add(new LabeledValue(RabbitMQQueueType.Quorum.toString(), RabbitMQQueueType.Quorum.toString()));
+      queueTypeAllowedValues.add(new LabeledValue(RabbitMQQueueType.Stream.toString(), RabbitMQQueueType.Stream.toString()));
+      propertyDefinitions.put("queueType", new PropertyDefinition("queueType", PropertyType.String, RabbitMQQueueType.Classic.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_TYPE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_TYPE_DESC}", false, false, queueTypeAllowedValues));
+
+      List<LabeledValue> queueModeAllowedValues = new ArrayList<LabeledValue>();
+      queueModeAllowedValues.add(new LabeledValue(RabbitMQQueueMode.Default.toString(), RabbitMQQueueMode.Default.toString()));
+      queueModeAllowedValues.add(new LabeledValue(RabbitMQQueueMode.Lazy.toString(), RabbitMQQueueMode.Lazy.toString()));
+      propertyDefinitions.put("queueMode", new PropertyDefinition("queueMode", PropertyType.String, RabbitMQQueueMode.Default.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_MODE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_MODE_DESC}", false, false, queueModeAllowedValues));
+      propertyDefinitions.put("maxLength", new PropertyDefinition("maxLength", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_MAX_LENGTH_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_MAX_LENGTH_DESC}", false, false));
+      propertyDefinitions.put("maxLengthBytes", new PropertyDefinition("maxLengthBytes", PropertyType.Long, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_MAX_LENGTH_BYTES_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_MAX_LENGTH_BYTES_DESC}", false, false));
+
+      List<LabeledValue> overflowAllowedValues = new ArrayList<LabeledValue>();
+      for (RabbitMQQueueOverflow overflow : RabbitMQQueueOverflow.values())
+        overflowAllowedValues.add(new LabeledValue(overflow.getAmqpValue(), overflow.toString()));
+      propertyDefinitions.put("overflow", new PropertyDefinition("overflow", PropertyType.String, RabbitMQQueueOverflow.DropHead.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_OVERFLOW_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_OVERFLOW_DESC}", false, false, overflowAllowedValues));
+      propertyDefinitions.put("messageTtl", new PropertyDefinition("messageTtl", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_MESSAGE_TTL_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_MESSAGE_TTL_DESC}", false, false));
+      propertyDefinitions.put("singleActiveConsumer", new PropertyDefinition("singleActiveConsumer", PropertyType.Boolean, false, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_SINGLE_ACTIVE_CONSUMER_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_SINGLE_ACTIVE_CONSUMER_DESC}", false, false));
+      propertyDefinitions.put("consumerPriority", new PropertyDefinition("consumerPriority", PropertyType.Integer, 0, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CONSUMER_PRIORITY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CONSUMER_PRIORITY_DESC}", false, false));
+
+      List<LabeledValue> streamStartAllowedValues = new ArrayList<LabeledValue>();
+      for (RabbitMQStreamStart start : RabbitMQStreamStart.values())
+        streamStartAllowedValues.add(new LabeledValue(start.toString(), start.toString()));
+      propertyDefinitions.put("streamStart", new PropertyDefinition("streamStart", PropertyType.String, RabbitMQStreamStart.Next.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_STREAM_START_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_STREAM_START_DESC}", false, false, streamStartAllowedValues));
+      propertyDefinitions.put("streamStartValue", new PropertyDefinition("streamStartValue", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_STREAM_START_VALUE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_STREAM_START_VALUE_DESC}", false, false));
+      propertyDefinitions.put("checkpointDirectory", new PropertyDefinition("checkpointDirectory", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CHECKPOINT_DIRECTORY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CHECKPOINT_DIRECTORY_DESC}", false, false));
+      propertyDefinitions.put("checkpointInterval", new PropertyDefinition("checkpointInterval", PropertyType.Integer, 1000, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CHECKPOINT_INTERVAL_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CHECKPOINT_INTERVAL_DESC}", false, false));
+
+      propertyDefinitions.put("shardCount", new PropertyDefinition("shardCount", PropertyType.Integer, 1, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_SHARD_COUNT_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_SHARD_COUNT_DESC}", false, false));
+      propertyDefinitions.put("shardWeights", new PropertyDefinition("shardWeights", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_SHARD_WEIGHTS_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_SHARD_WEIGHTS_DESC}", false, false));
+
       propertyDefinitions.put("prefetchCount", new PropertyDefinition("prefetchCount", PropertyType.Integer, 1, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QOS_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QOS_DESC}", false, false));
+      propertyDefinitions.put("clockSkewTolerance", new PropertyDefinition("clockSkewTolerance", PropertyType.Integer, 1000, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CLOCK_SKEW_TOLERANCE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CLOCK_SKEW_TOLERANCE_DESC}", false, false));
+      propertyDefinitions.put("queueProbeInterval", new PropertyDefinition("queueProbeInterval", PropertyType.Integer, 30, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_PROBE_INTERVAL_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_PROBE_INTERVAL_DESC}", false, false));
+      propertyDefinitions.put("queueLagThreshold", new PropertyDefinition("queueLagThreshold", PropertyType.Integer, 0, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_LAG_THRESHOLD_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_QUEUE_LAG_THRESHOLD_DESC}", false, false));
+      propertyDefinitions.put("captureDirectory", new PropertyDefinition("captureDirectory", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CAPTURE_DIRECTORY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CAPTURE_DIRECTORY_DESC}", false, false));
+      List<LabeledValue> framingAllowedValues = new ArrayList<LabeledValue>();
+      framingAllowedValues.add(new LabeledValue(RabbitMQFraming.None.toString(), RabbitMQFraming.None.toString()));
+      framingAllowedValues.add(new LabeledValue(RabbitMQFraming.LengthPrefixed.toString(), RabbitMQFraming.LengthPrefixed.toString()));
+      propertyDefinitions.put("framing", new PropertyDefinition("framing", PropertyType.String, RabbitMQFraming.None.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_FRAMING_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_FRAMING_DESC}", false, false, framingAllowedValues));
+      propertyDefinitions.put("captureSegmentSize", new PropertyDefinition("captureSegmentSize", PropertyType.Integer, 64, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CAPTURE_SEGMENT_SIZE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_CAPTURE_SEGMENT_SIZE_DESC}", false, false));
       propertyDefinitions.put("routingKey", new PropertyDefinition("routingKey", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_ROUTING_KEY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_IN_ROUTING_KEY_DESC}", false, false));
     }
     catch (PropertyException e)
@@ -0,0 +1,153 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// the only class of the bundle that links against jdk.jfr, it is never loaded when Flight Recorder is missing
+class RabbitMQJfrRecorder implements RabbitMQFlightRecorder.Recorder
+{
+  public RabbitMQJfrRecorder()
+  {
+    if (!FlightRecorder.isAvailable())
+      throw new IllegalStateException("Flight Recorder is not available");
+  }
+
+  @Override
+  public Object beginPublish()
+  {
+    return begin(new PublishEvent());
+  }
+
+  @Override
+  public Object beginDelivery()
+  {
+    return begin(new DeliveryEvent());
+  }
+
+  @Override
+  public Object beginDispatch()
+  {
+    return begin(new DispatchEvent());
+  }
+
+  private static Object begin(TransferEvent event)
+  {
+    // disabled event types are dropped before any timestamp is taken
+    if (!event.isEnabled())
+      return null;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public void commit(Object event, String transport, String destination, int size)
+  {
+    TransferEvent transfer = (TransferEvent) event;
+    transfer.end();
+    if (transfer.shouldCommit())
+    {
+      transfer.transport = transport;
+      transfer.destination = destination;
+      transfer.size = size;
+      transfer.commit();
+    }
+  }
+
+  @Override
+  public void statusChanged(String host, RabbitMQConnectionStatus status, String details)
+  {
+    StatusEvent event = new StatusEvent();
+    if (event.isEnabled())
+    {
+      event.host = host;
+      event.status = status.name();
+      event.details = details;
+      event.commit();
+    }
+  }
+
+  @Category({"GeoEvent", "RabbitMQ"})
+  @StackTrace(false)
+  abstract static class TransferEvent extends Event
+  {
+    @Label("Transport")
+    @Description("Inbound or Outbound")
+    String transport;
+
+    @Label("Destination")
+    @Description("Exchange published to or queue consumed from")
+    String destination;
+
+    @Label("Payload Size")
+    @DataAmount
+    int    size;
+  }
+
+  @Name("com.esri.geoevent.transport.rabbitmq.Publish")
+  @Label("RabbitMQ Publish")
+  @Description("Duration of basicPublish in the outbound transport")
+  static class PublishEvent extends TransferEvent
+  {
+  }
+
+  @Name("com.esri.geoevent.transport.rabbitmq.Delivery")
+  @Label("RabbitMQ Delivery")
+  @Description("Handoff of a delivery from the client connection thread to the inbound transport")
+  static class DeliveryEvent extends TransferEvent
+  {
+  }
+
+  @Name("com.esri.geoevent.transport.rabbitmq.Dispatch")
+  @Label("RabbitMQ Dispatch")
+  @Description("Dispatch of a received payload to the adapter")
+  static class DispatchEvent extends TransferEvent
+  {
+  }
+
+  @Name("com.esri.geoevent.transport.rabbitmq.ConnectionStatus")
+  @Label("RabbitMQ Connection Status")
+  @Description("Status transition of a broker connection")
+  @Category({"GeoEvent", "RabbitMQ"})
+  @StackTrace(false)
+  static class StatusEvent extends Event
+  {
+    @Label("Host")
+    String host;
+
+    @Label("Status")
+    String status;
+
+    @Label("Details")
+    String details;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RabbitMQLatencyHistogram
+{
+  // log-linear buckets like HdrHistogram: 16 linear sub-buckets per power of two, about 6% relative error
+  private static final int        SUB_BUCKET_BITS = 4;
+  private static final int        SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+  private static final int        BUCKETS         = SUB_BUCKETS * (64 - SUB_BUCKET_BITS + 1);
+  private final LongAdder[]       buckets         = new LongAdder[BUCKETS];
+  private final LongAdder         count           = new LongAdder();
+  private final LongAccumulator   max             = new LongAccumulator(Math::max, 0);
+
+  public RabbitMQLatencyHistogram()
+  {
+    for (int i = 0; i < BUCKETS; i++)
+      buckets[i] = new LongAdder();
+  }
+
+  public void record(long nanos)
+  {
+    long value = (nanos < 0) ? 0 : nanos;
+    buckets[index(value)].increment();
+    count.increment();
+    max.accumulate(value);
+  }
+
+  public long getCount()
+  {
+    return count.sum();
+  }
+
+  public long getMaxMicros()
+  {
+    return TimeUnit.NANOSECONDS.toMicros(max.get());
+  }
+
+  // upper bound of the bucket holding the given percentile (0-100), in microseconds
+  public long getPercentileMicros(double percentile)
+  {
+    long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++)
+    {
+      snapshot[i] = buckets[i].sum();
+      total += snapshot[i];
+    }
+    if (total == 0)
+      return 0;
+    long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++)
+    {
+      seen += snapshot[i];
+      if (seen >= rank)
+        return TimeUnit.NANOSECONDS.toMicros(Math.min(upperBound(i), max.get()));
+    }
+    return getMaxMicros();
+  }
+
+  public void reset()
+  {
+    for (LongAdder bucket : buckets)
+      bucket.reset();
+    count.reset();
+    max.reset();
+  }
+
+  private static int index(long value)
+  {
+    if (value < SUB_BUCKETS)
+      return (int) value;
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return SUB_BUCKETS * (shift + 1) + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  private static long upperBound(int index)
+  {
+    if (index < SUB_BUCKETS)
+      return index;
+    int shift = index / SUB_BUCKETS - 1;
+    long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -24,22 +24,188 @@
 
 package com.esri.geoevent.transport.rabbitmq;
 
-import java.util.Observable;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-public abstract class RabbitMQObservable extends Observable
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+
+public abstract class RabbitMQObservable
 {
-  public void notifyObservers(RabbitMQConnectionStatus status, String details, Object... args)
+  private static final BundleLogger                              LOGGER       = BundleLoggerFactory.getLogger(RabbitMQObservable.class);
+  private static final RabbitMQConnectionStatus[]                ALL_STATUSES = RabbitMQConnectionStatus.values();
+  private static final StatusListenerEntry[]                     NO_LISTENERS = new StatusListenerEntry[0];
+  // shared by the asynchronous listeners of every observable, each listener still sees its events in order
+  private static final ExecutorService                           DISPATCHER   = createDispatcher();
+  // copy-on-write listener arrays indexed by status ordinal
+  private final AtomicReferenceArray<StatusListenerEntry[]>      listeners    = new AtomicReferenceArray<StatusListenerEntry[]>(ALL_STATUSES.length);
+
+  public RabbitMQObservable()
+  {
+    for (int i = 0; i < ALL_STATUSES.length; i++)
+      listeners.set(i, NO_LISTENERS);
+  }
+
+  public void addListener(RabbitMQStatusListener listener)
+  {
+    addListener(listener, false);
+  }
+
+  public void addListener(RabbitMQStatusListener listener, boolean async, RabbitMQConnectionStatus... statuses)
+  {
+    if (listener == null)
+      return;
+    StatusListenerEntry entry = async ? new AsyncStatusListenerEntry(listener) : new StatusListenerEntry(listener);
+    for (RabbitMQConnectionStatus status : (statuses.length > 0) ? statuses : ALL_STATUSES)
+    {
+      int index = status.ordinal();
+      StatusListenerEntry[] current;
+      StatusListenerEntry[] updated;
+      do
+      {
+        current = listeners.get(index);
+        updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = entry;
+      }
+      while (!listeners.compareAndSet(index, current, updated));
+    }
+  }
+
+  public void removeListener(RabbitMQStatusListener listener)
+  {
+    for (int index = 0; index < ALL_STATUSES.length; index++)
+    {
+      StatusListenerEntry[] current;
+      StatusListenerEntry[] updated;
+      do
+      {
+        current = listeners.get(index);
+        updated = current;
+        for (int i = 0; i < current.length; i++)
+        {
+          if (current[i].listener == listener)
+          {
+            current[i].active = false;
+            updated = new StatusListenerEntry[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, i);
+            System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+            break;
+          }
+        }
+      }
+      while (updated != current && !listeners.compareAndSet(index, current, updated));
+    }
+  }
+
+  public void notifyListeners(RabbitMQConnectionStatus status, String details)
   {
-    notifyObservers(new RabbitMQTransportEvent(status, details, args));
+    if (status == null)
+      return;
+    for (StatusListenerEntry entry : listeners.get(status.ordinal()))
+      entry.dispatch(status, details);
   }
 
-  public void notifyObservers(Object event)
+  // one thread per processor at most, beyond that the notifying thread drains the listener itself, which keeps
+  // the listener's events in order and slows the notifier down instead of piling up threads
+  private static ExecutorService createDispatcher()
   {
-    if (event != null)
+    int threads = Runtime.getRuntime().availableProcessors();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(0, threads, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory()
+      {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+          Thread thread = new Thread(runnable, "rabbitmq-status-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      }, new ThreadPoolExecutor.CallerRunsPolicy());
+    return executor;
+  }
+
+  private static class StatusListenerEntry
+  {
+    protected final RabbitMQStatusListener listener;
+    protected volatile boolean             active = true;
+
+    StatusListenerEntry(RabbitMQStatusListener listener)
+    {
+      this.listener = listener;
+    }
+
+    void dispatch(RabbitMQConnectionStatus status, String details)
+    {
+      deliver(status, details);
+    }
+
+    protected void deliver(RabbitMQConnectionStatus status, String details)
+    {
+      if (!active)
+        return;
+      try
+      {
+        listener.onStatus(status, details);
+      }
+      catch (RuntimeException e)
+      {
+        LOGGER.error("STATUS_LISTENER_ERROR", e.getMessage(), e);
+      }
+    }
+  }
+
+  private static class AsyncStatusListenerEntry extends StatusListenerEntry implements Runnable
+  {
+    private final Queue<PendingStatus> pending   = new ConcurrentLinkedQueue<PendingStatus>();
+    private final AtomicBoolean        scheduled = new AtomicBoolean();
+
+    AsyncStatusListenerEntry(RabbitMQStatusListener listener)
+    {
+      super(listener);
+    }
+
+    @Override
+    void dispatch(RabbitMQConnectionStatus status, String details)
+    {
+      pending.add(new PendingStatus(status, details));
+      if (scheduled.compareAndSet(false, true))
+        DISPATCHER.execute(this);
+    }
+
+    @Override
+    public void run()
+    {
+      // drain serially so a listener never sees its events reordered or runs concurrently with itself
+      do
+      {
+        PendingStatus event;
+        while ((event = pending.poll()) != null)
+          deliver(event.status, event.details);
+        scheduled.set(false);
+      }
+      while (!pending.isEmpty() && scheduled.compareAndSet(false, true));
+    }
+  }
+
+  private static class PendingStatus
+  {
+    private final RabbitMQConnectionStatus status;
+    private final String                   details;
+
+    PendingStatus(RabbitMQConnectionStatus status, String details)
     {
-      setChanged();
-      super.notifyObservers(event);
-      clearChanged();
+      this.status = status;
+      this.details = details;
     }
   }
 }
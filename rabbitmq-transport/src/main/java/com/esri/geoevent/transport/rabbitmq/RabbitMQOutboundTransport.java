@@ -32,17 +32,57 @@ import com.esri.ges.framework.i18n.BundleLogger;
 import com.esri.ges.framework.i18n.BundleLoggerFactory;
 import com.esri.ges.transport.OutboundTransportBase;
 import com.esri.ges.transport.TransportDefinition;
+import com.esri.ges.util.Converter;
+import com.esri.ges.util.Validator;
 
 import java.nio.ByteBuffer;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
-public class RabbitMQOutboundTransport extends OutboundTransportBase implements Observer
+public class RabbitMQOutboundTransport extends OutboundTransportBase implements RabbitMQStatusListener, RabbitMQOutboundTransportMBean
 {
-  private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(RabbitMQOutboundTransport.class);
-  private RabbitMQConnectionInfo    connectionInfo;
-  private RabbitMQExchange          exchange;
-  private RabbitMQProducer          producer;
+  private static final BundleLogger              LOGGER            = BundleLoggerFactory.getLogger(RabbitMQOutboundTransport.class);
+  // the open batches are published once they hold this many bytes together whatever their record count
+  private static final int                       MAX_BATCH_BYTES   = 1024 * 1024;
+  private static final int                       MAX_SPARE_BATCHES = 64;
+  // one thread publishes the batches of every outbound transport whose linger time ran out
+  private static final ScheduledExecutorService  LINGER            = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+        Thread thread = new Thread(runnable, "rabbitmq-batch-linger");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  // changing any of these needs a new connection, the remaining settings are applied to the running producer
+  private static final String[]                  CONNECTION_PROPERTIES = {"host", "port", "virtualHost", "username", "password", "ssl", "tlsProtocol", "trustStore", "trustStorePassword", "keyStore", "keyStorePassword", "cipherSuites", "verifyHostname", "warmStandby", "standbyHost", "tuningProfile", "heartbeat", "frameMax", "channelMax", "tcpNoDelay", "socketSendBufferSize", "socketReceiveBufferSize", "connectionTimeout", "exchangeName", "exchangeType", "exchangeDurability", "exchangeAutoDelete", "routingKey", "alternateExchange", "passiveDeclare"};
+  private RabbitMQConnectionInfo                 connectionInfo;
+  private RabbitMQExchange                       exchange;
+  private RabbitMQProducer                       producer;
+  private boolean                                passiveDeclare;
+  private boolean                                publishTimestamp;
+  private RabbitMQHashKey                        hashKey           = RabbitMQHashKey.TrackId;
+  private RabbitMQFraming                        framing           = RabbitMQFraming.None;
+  private int                                    batchSize;
+  private int                                    batchLinger;
+  // a batch is routed as a whole, so there is one per routing key, on a hash exchange with track ids one per track
+  private final Map<String, RabbitMQRecordBatch> batches           = new LinkedHashMap<String, RabbitMQRecordBatch>();
+  // published batches are kept for reuse, the routing keys come and go with the tracks
+  private final ArrayDeque<RabbitMQRecordBatch>  spareBatches      = new ArrayDeque<RabbitMQRecordBatch>();
+  private int                                    batchedBytes;
+  private ScheduledFuture<?>                     lingerFuture;
+  private RabbitMQTransportMetrics               metrics           = new RabbitMQTransportMetrics("Outbound");
+  private Map<String, String>                    connectionProperties;
 
   public RabbitMQOutboundTransport(TransportDefinition definition) throws ComponentException
   {
@@ -54,12 +94,99 @@ public class RabbitMQOutboundTransport extends OutboundTransportBase implements
   {
     try
     {
-      if (producer != null)
-        producer.send(buffer);
+      if (producer == null)
+        metrics.messageDropped();
+      else if (framing == RabbitMQFraming.LengthPrefixed)
+        batch(buffer, routingKey(channelId));
+      else
+        producer.send(buffer, routingKey(channelId));
     }
     catch (RabbitMQTransportException e)
     {
-      ;
+      metrics.messageDropped();
+    }
+  }
+
+  // on a hash exchange every track goes to the same shard queue, which keeps its records in order
+  private String routingKey(String channelId)
+  {
+    if (exchange.getType().isHash() && hashKey == RabbitMQHashKey.TrackId && channelId != null && !channelId.isEmpty())
+      return channelId;
+    return exchange.getRoutingKey();
+  }
+
+  // the first record waiting in any batch starts the linger time, a full batch is published right away
+  private void batch(ByteBuffer buffer, String routingKey) throws RabbitMQTransportException
+  {
+    if (buffer == null || !buffer.hasRemaining())
+    {
+      metrics.messageDropped();
+      return;
+    }
+    RabbitMQRecordBatch batch = batches.get(routingKey);
+    if (batch == null)
+    {
+      batch = spareBatches.isEmpty() ? new RabbitMQRecordBatch() : spareBatches.poll();
+      batches.put(routingKey, batch);
+    }
+    int length = batch.getLength();
+    batch.add(buffer);
+    batchedBytes += batch.getLength() - length;
+    if (batch.getRecords() >= batchSize)
+    {
+      batches.remove(routingKey);
+      publish(batch, routingKey);
+    }
+    else if (batchedBytes >= MAX_BATCH_BYTES)
+      flush();
+    else if (lingerFuture == null)
+      lingerFuture = LINGER.schedule(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            flush();
+          }
+        }, batchLinger, TimeUnit.MILLISECONDS);
+  }
+
+  // publishes every open batch
+  synchronized void flush()
+  {
+    if (lingerFuture != null)
+    {
+      lingerFuture.cancel(false);
+      lingerFuture = null;
+    }
+    for (Iterator<Map.Entry<String, RabbitMQRecordBatch>> i = batches.entrySet().iterator(); i.hasNext();)
+    {
+      Map.Entry<String, RabbitMQRecordBatch> entry = i.next();
+      i.remove();
+      publish(entry.getValue(), entry.getKey());
+    }
+  }
+
+  private void publish(RabbitMQRecordBatch batch, String routingKey)
+  {
+    int records = batch.getRecords();
+    batchedBytes -= batch.getLength();
+    byte[] body = batch.drain();
+    if (spareBatches.size() < MAX_SPARE_BATCHES)
+      spareBatches.add(batch);
+    // every record of a batch that cannot be published is lost
+    if (producer == null || !producer.isConnected())
+    {
+      metrics.messagesDropped(records);
+      return;
+    }
+    try
+    {
+      producer.send(ByteBuffer.wrap(body), routingKey);
+      metrics.recordsFramed(records);
+    }
+    catch (RabbitMQTransportException e)
+    {
+      metrics.messagesDropped(records);
     }
   }
 
@@ -87,17 +214,11 @@ public class RabbitMQOutboundTransport extends OutboundTransportBase implements
   public void afterPropertiesSet()
   {
     super.afterPropertiesSet();
-    shutdownProducer();
-    String password;
-    try
-    {
-      password = getProperty("password").getDecryptedValue();
-    }
-    catch (Exception e)
-    {
-      password = getProperty("password").getValueAsString();
-    }
-
+    Map<String, String> properties = getPropertyValues(CONNECTION_PROPERTIES);
+    if (!properties.equals(connectionProperties))
+      shutdownProducer();
+    connectionProperties = properties;
+    String password = getPassword("password");
     String host = getProperty("host").getValueAsString();
     String port = getProperty("port").getValueAsString();
     String virtualHost = getProperty("virtualHost").getValueAsString();
@@ -105,14 +226,61 @@ public class RabbitMQOutboundTransport extends OutboundTransportBase implements
       virtualHost = "/";
     String username = getProperty("username").getValueAsString();
     String ssl = getProperty("ssl").getValueAsString();
-    connectionInfo = new RabbitMQConnectionInfo(host, port, virtualHost, username, password, ssl);
+    String tuningProfile = getProperty("tuningProfile").getValueAsString();
+    String heartbeat = getProperty("heartbeat").getValueAsString();
+    String frameMax = getProperty("frameMax").getValueAsString();
+    String channelMax = getProperty("channelMax").getValueAsString();
+    String tcpNoDelay = getProperty("tcpNoDelay").getValueAsString();
+    String socketSendBufferSize = getProperty("socketSendBufferSize").getValueAsString();
+    String socketReceiveBufferSize = getProperty("socketReceiveBufferSize").getValueAsString();
+    String connectionTimeout = getProperty("connectionTimeout").getValueAsString();
+    RabbitMQConnectionTuning tuning = new RabbitMQConnectionTuning(tuningProfile, heartbeat, frameMax, channelMax, tcpNoDelay, socketSendBufferSize, socketReceiveBufferSize, connectionTimeout);
+    String tlsProtocol = getProperty("tlsProtocol").getValueAsString();
+    String trustStore = getProperty("trustStore").getValueAsString();
+    String trustStorePassword = getPassword("trustStorePassword");
+    String keyStore = getProperty("keyStore").getValueAsString();
+    String keyStorePassword = getPassword("keyStorePassword");
+    String cipherSuites = getProperty("cipherSuites").getValueAsString();
+    String verifyHostname = getProperty("verifyHostname").getValueAsString();
+    RabbitMQTlsSettings tls = new RabbitMQTlsSettings(tlsProtocol, trustStore, trustStorePassword, keyStore, keyStorePassword, cipherSuites, verifyHostname);
+    String warmStandby = getProperty("warmStandby").getValueAsString();
+    String standbyHost = getProperty("standbyHost").getValueAsString();
+    connectionInfo = new RabbitMQConnectionInfo(host, port, virtualHost, username, password, ssl, tuning, tls, warmStandby, standbyHost);
 
     String exchangeName = getProperty("exchangeName").getValueAsString();
     String exchangeType = getProperty("exchangeType").getValueAsString();
     String exchangeDurability = getProperty("exchangeDurability").getValueAsString();
     String exchangeAutoDelete = getProperty("exchangeAutoDelete").getValueAsString();
     String routingKey = getProperty("routingKey").getValueAsString();
-    exchange = new RabbitMQExchange(exchangeName, exchangeType, exchangeDurability, exchangeAutoDelete, routingKey);
+    String alternateExchange = getProperty("alternateExchange").getValueAsString();
+    exchange = new RabbitMQExchange(exchangeName, exchangeType, exchangeDurability, exchangeAutoDelete, routingKey, alternateExchange);
+    passiveDeclare = Converter.convertToBoolean(getProperty("passiveDeclare").getValueAsString(), false);
+    setPublishTimestamp(Converter.convertToBoolean(getProperty("publishTimestamp").getValueAsString(), false));
+    hashKey = Validator.valueOfIgnoreCase(RabbitMQHashKey.class, getProperty("hashKey").getValueAsString(), RabbitMQHashKey.TrackId);
+    setFraming(getProperty("framing").getValueAsString());
+    setBatchSize(Converter.convertToInteger(getProperty("batchSize").getValueAsString(), 100));
+    setBatchLinger(Converter.convertToInteger(getProperty("batchLinger").getValueAsString(), 5));
+    metrics.register(exchangeName, this);
+  }
+
+  private Map<String, String> getPropertyValues(String... names)
+  {
+    Map<String, String> values = new HashMap<String, String>();
+    for (String name : names)
+      values.put(name, getProperty(name).getValueAsString());
+    return values;
+  }
+
+  private String getPassword(String name)
+  {
+    try
+    {
+      return getProperty(name).getDecryptedValue();
+    }
+    catch (Exception e)
+    {
+      return getProperty(name).getValueAsString();
+    }
   }
 
   @Override
@@ -132,8 +300,12 @@ public class RabbitMQOutboundTransport extends OutboundTransportBase implements
       if (producer == null)
       {
         producer = new RabbitMQProducer(connectionInfo, exchange);
-        producer.addObserver(this);
+        producer.addListener(this, true);
       }
+      producer.setPassiveDeclare(passiveDeclare);
+      producer.setMetrics(metrics);
+      metrics.setTimeline(producer.getTimeline());
+      producer.setPublishTimestamp(publishTimestamp);
       producer.connect();
       setRunningState(RunningState.STARTED);
     }
@@ -147,17 +319,87 @@ public class RabbitMQOutboundTransport extends OutboundTransportBase implements
   private synchronized void disconnect(String reason)
   {
     setRunningState(RunningState.STOPPING);
+    flush();
     if (producer != null)
       producer.disconnect(reason);
     setErrorMessage(reason);
     setRunningState(RunningState.STOPPED);
   }
 
+  @Override
+  public synchronized boolean isPublishTimestamp()
+  {
+    return publishTimestamp;
+  }
+
+  @Override
+  public synchronized void setPublishTimestamp(boolean value)
+  {
+    publishTimestamp = value;
+    if (producer != null)
+      producer.setPublishTimestamp(value);
+  }
+
+  @Override
+  public synchronized String getFraming()
+  {
+    return framing.toString();
+  }
+
+  // records still waiting in a batch go out before switching back to one record per message
+  @Override
+  public synchronized void setFraming(String value)
+  {
+    framing = Validator.valueOfIgnoreCase(RabbitMQFraming.class, value, RabbitMQFraming.None);
+    if (framing != RabbitMQFraming.LengthPrefixed)
+      flush();
+  }
+
+  @Override
+  public synchronized int getBatchSize()
+  {
+    return batchSize;
+  }
+
+  @Override
+  public synchronized void setBatchSize(int records)
+  {
+    batchSize = Math.max(1, records);
+    for (RabbitMQRecordBatch batch : batches.values())
+    {
+      if (batch.getRecords() >= batchSize)
+      {
+        flush();
+        break;
+      }
+    }
+  }
+
+  @Override
+  public synchronized int getBatchLinger()
+  {
+    return batchLinger;
+  }
+
+  @Override
+  public synchronized void setBatchLinger(int millis)
+  {
+    batchLinger = Math.max(0, millis);
+  }
+
+  // routing follows the exchange the producer publishes to
+  synchronized void attach(RabbitMQProducer producer)
+  {
+    this.producer = producer;
+    this.exchange = producer.exchange;
+  }
+
   private synchronized void shutdownProducer()
   {
     if (producer != null)
     {
-      producer.deleteObserver(this);
+      flush();
+      producer.removeListener(this);
       producer.shutdown("");
       producer = null;
     }
@@ -166,47 +408,44 @@ public class RabbitMQOutboundTransport extends OutboundTransportBase implements
   public void shutdown()
   {
     shutdownProducer();
+    metrics.unregister();
     super.shutdown();
   }
 
   @Override
-  public void update(Observable observable, Object obj)
+  public void onStatus(RabbitMQConnectionStatus status, String details)
   {
-    if (obj instanceof RabbitMQTransportEvent)
+    switch (status)
     {
-      RabbitMQTransportEvent event = (RabbitMQTransportEvent) obj;
-      switch (event.getStatus())
-      {
-        case CREATED:
-        case RECOVERY:
-          try
-          {
-            start();
-          }
-          catch (RunningException e)
-          {
-            ;
-          }
-          break;
-        case DISCONNECTED:
-          disconnect("");
-          break;
-        case SHUTDOWN:
-          shutdown();
-          break;
-        case RECOVERY_FAILED:
-        case CREATION_FAILED:
-          LOGGER.error(event.getDetails());
-          disconnect(event.getDetails());
-          setRunningState(RunningState.ERROR);
-          break;
-        case RECOVERY_STARTED:
-          break;
-        case RECOVERY_COMPLETED:
-          break;
-        default:
-          break;
-      }
+      case CREATED:
+      case RECOVERY:
+        try
+        {
+          start();
+        }
+        catch (RunningException e)
+        {
+          ;
+        }
+        break;
+      case DISCONNECTED:
+        disconnect("");
+        break;
+      case SHUTDOWN:
+        shutdown();
+        break;
+      case RECOVERY_FAILED:
+      case CREATION_FAILED:
+        LOGGER.error(details);
+        disconnect(details);
+        setRunningState(RunningState.ERROR);
+        break;
+      case RECOVERY_STARTED:
+        break;
+      case RECOVERY_COMPLETED:
+        break;
+      default:
+        break;
     }
   }
 }
@@ -52,6 +52,28 @@ public class RabbitMQOutboundTransportDefinition extends TransportDefinitionBase
       propertyDefinitions.put("username", new PropertyDefinition("username", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_USERNAME_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_USERNAME_DESC}", false, false));
       propertyDefinitions.put("password", new PropertyDefinition("password", PropertyType.Password, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_PASSWORD_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_PASSWORD_DESC}", false, false));
       propertyDefinitions.put("ssl", new PropertyDefinition("ssl", PropertyType.Boolean, false, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SSL_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SSL_DESC}", true, false));
+      propertyDefinitions.put("tlsProtocol", new PropertyDefinition("tlsProtocol", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TLS_PROTOCOL_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TLS_PROTOCOL_DESC}", false, false));
+      propertyDefinitions.put("trustStore", new PropertyDefinition("trustStore", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TRUST_STORE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TRUST_STORE_DESC}", false, false));
+      propertyDefinitions.put("trustStorePassword", new PropertyDefinition("trustStorePassword", PropertyType.Password, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TRUST_STORE_PASSWORD_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TRUST_STORE_PASSWORD_DESC}", false, false));
+      propertyDefinitions.put("keyStore", new PropertyDefinition("keyStore", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_KEY_STORE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_KEY_STORE_DESC}", false, false));
+      propertyDefinitions.put("keyStorePassword", new PropertyDefinition("keyStorePassword", PropertyType.Password, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_KEY_STORE_PASSWORD_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_KEY_STORE_PASSWORD_DESC}", false, false));
+      propertyDefinitions.put("cipherSuites", new PropertyDefinition("cipherSuites", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CIPHER_SUITES_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CIPHER_SUITES_DESC}", false, false));
+      propertyDefinitions.put("verifyHostname", new PropertyDefinition("verifyHostname", PropertyType.Boolean, true, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_VERIFY_HOSTNAME_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_VERIFY_HOSTNAME_DESC}", false, false));
+      propertyDefinitions.put("warmStandby", new PropertyDefinition("warmStandby", PropertyType.Boolean, false, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_WARM_STANDBY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_WARM_STANDBY_DESC}", false, false));
+      propertyDefinitions.put("standbyHost", new PropertyDefinition("standbyHost", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_STANDBY_HOST_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_STANDBY_HOST_DESC}", false, false));
+
+      // Connection tuning properties
+      List<LabeledValue> tuningProfileAllowedValues = new ArrayList<LabeledValue>();
+      for (RabbitMQTuningProfile profile : RabbitMQTuningProfile.values())
+        tuningProfileAllowedValues.add(new LabeledValue(profile.toString(), profile.toString()));
+      propertyDefinitions.put("tuningProfile", new PropertyDefinition("tuningProfile", PropertyType.String, RabbitMQTuningProfile.Default.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TUNING_PROFILE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TUNING_PROFILE_DESC}", false, false, tuningProfileAllowedValues));
+      propertyDefinitions.put("heartbeat", new PropertyDefinition("heartbeat", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_HEARTBEAT_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_HEARTBEAT_DESC}", false, false));
+      propertyDefinitions.put("frameMax", new PropertyDefinition("frameMax", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_FRAME_MAX_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_FRAME_MAX_DESC}", false, false));
+      propertyDefinitions.put("channelMax", new PropertyDefinition("channelMax", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CHANNEL_MAX_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CHANNEL_MAX_DESC}", false, false));
+      propertyDefinitions.put("tcpNoDelay", new PropertyDefinition("tcpNoDelay", PropertyType.Boolean, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TCP_NO_DELAY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_TCP_NO_DELAY_DESC}", false, false));
+      propertyDefinitions.put("socketSendBufferSize", new PropertyDefinition("socketSendBufferSize", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SOCKET_SEND_BUFFER_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SOCKET_SEND_BUFFER_DESC}", false, false));
+      propertyDefinitions.put("socketReceiveBufferSize", new PropertyDefinition("socketReceiveBufferSize", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SOCKET_RECEIVE_BUFFER_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_SOCKET_RECEIVE_BUFFER_DESC}", false, false));
+      propertyDefinitions.put("connectionTimeout", new PropertyDefinition("connectionTimeout", PropertyType.Integer, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CONNECTION_TIMEOUT_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_CONNECTION_TIMEOUT_DESC}", false, false));
 
       // Exchange properties
       propertyDefinitions.put("exchangeName", new PropertyDefinition("exchangeName", PropertyType.String, null, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_NAME_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_NAME_DESC}", true, false));
@@ -59,6 +81,8 @@ public class RabbitMQOutboundTransportDefinition extends TransportDefinitionBase
       List<LabeledValue> exchangeTypeAllowedValues = new ArrayList<LabeledValue>();
       exchangeTypeAllowedValues.add(new LabeledValue(RabbitMQExchangeType.direct.toString(), RabbitMQExchangeType.direct.toString()));
       exchangeTypeAllowedValues.add(new LabeledValue(RabbitMQExchangeType.fanout.toString(), RabbitMQExchangeType.fanout.toString()));
+      exchangeTypeAllowedValues.add(new LabeledValue(RabbitMQExchangeType.consistentHash.getAmqpType(), RabbitMQExchangeType.consistentHash.toString()));
+      exchangeTypeAllowedValues.add(new LabeledValue(RabbitMQExchangeType.modulusHash.getAmqpType(), RabbitMQExchangeType.modulusHash.toString()));
       propertyDefinitions.put("exchangeType", new PropertyDefinition("exchangeType", PropertyType.String, RabbitMQExchangeType.direct.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_TYPE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_TYPE_DESC}", true, false, exchangeTypeAllowedValues));
 
       List<LabeledValue> exchangeDurabilityAllowedValues = new ArrayList<LabeledValue>();
@@ -67,6 +91,19 @@ public class RabbitMQOutboundTransportDefinition extends TransportDefinitionBase
       propertyDefinitions.put("exchangeDurability", new PropertyDefinition("exchangeDurability", PropertyType.String, RabbitMQDurability.Transient.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_DURABILITY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_DURABILITY_DESC}", true, false, exchangeDurabilityAllowedValues));
 
       propertyDefinitions.put("exchangeAutoDelete", new PropertyDefinition("exchangeAutoDelete", PropertyType.Boolean, "true", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_AUTO_DELETE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_EXCHANGE_AUTO_DELETE_DESC}", true, false));
+      propertyDefinitions.put("alternateExchange", new PropertyDefinition("alternateExchange", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_ALTERNATE_EXCHANGE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_ALTERNATE_EXCHANGE_DESC}", false, false));
+      List<LabeledValue> hashKeyAllowedValues = new ArrayList<LabeledValue>();
+      hashKeyAllowedValues.add(new LabeledValue(RabbitMQHashKey.TrackId.toString(), RabbitMQHashKey.TrackId.toString()));
+      hashKeyAllowedValues.add(new LabeledValue(RabbitMQHashKey.RoutingKey.toString(), RabbitMQHashKey.RoutingKey.toString()));
+      propertyDefinitions.put("hashKey", new PropertyDefinition("hashKey", PropertyType.String, RabbitMQHashKey.TrackId.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_HASH_KEY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_HASH_KEY_DESC}", false, false, hashKeyAllowedValues));
+      propertyDefinitions.put("publishTimestamp", new PropertyDefinition("publishTimestamp", PropertyType.Boolean, false, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_PUBLISH_TIMESTAMP_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_PUBLISH_TIMESTAMP_DESC}", false, false));
+      List<LabeledValue> framingAllowedValues = new ArrayList<LabeledValue>();
+      framingAllowedValues.add(new LabeledValue(RabbitMQFraming.None.toString(), RabbitMQFraming.None.toString()));
+      framingAllowedValues.add(new LabeledValue(RabbitMQFraming.LengthPrefixed.toString(), RabbitMQFraming.LengthPrefixed.toString()));
+      propertyDefinitions.put("framing", new PropertyDefinition("framing", PropertyType.String, RabbitMQFraming.None.toString(), "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_FRAMING_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_FRAMING_DESC}", false, false, framingAllowedValues));
+      propertyDefinitions.put("batchSize", new PropertyDefinition("batchSize", PropertyType.Integer, 100, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_BATCH_SIZE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_BATCH_SIZE_DESC}", false, false));
+      propertyDefinitions.put("batchLinger", new PropertyDefinition("batchLinger", PropertyType.Integer, 5, "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_BATCH_LINGER_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_BATCH_LINGER_DESC}", false, false));
+      propertyDefinitions.put("passiveDeclare", new PropertyDefinition("passiveDeclare", PropertyType.Boolean, "false", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_PASSIVE_DECLARE_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_PASSIVE_DECLARE_DESC}", false, false));
       propertyDefinitions.put("routingKey", new PropertyDefinition("routingKey", PropertyType.String, "", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_ROUTING_KEY_LBL}", "${com.esri.geoevent.transport.rabbitmq-transport.TRANSPORT_OUT_ROUTING_KEY_DESC}", false, false));
     }
     catch (PropertyException e)
@@ -26,20 +26,90 @@ package com.esri.geoevent.transport.rabbitmq;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import com.esri.ges.framework.i18n.BundleLogger;
 import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.rabbitmq.client.AMQP;
 
 public class RabbitMQProducer extends RabbitMQConnectionBroker.RabbitMQComponentBase
 {
-  private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(RabbitMQProducer.class);
+  private static final BundleLogger             LOGGER                   = BundleLoggerFactory.getLogger(RabbitMQProducer.class);
+  // wall clock publish time in microseconds since the epoch, read back by consumers on any node
+  public static final String                    PUBLISH_TIMESTAMP_HEADER = "x-geoevent-published";
+  // well above the coarsest wall clock tick (about 15.6ms on Windows) so only clock steps re-anchor
+  private static final long                     DRIFT_TOLERANCE_MICROS   = 50000;
+  // one thread keeps the publish clock in step with the wall clock, away from the publishing threads
+  private static final ScheduledExecutorService CLOCK                    = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+        Thread thread = new Thread(runnable, "rabbitmq-publish-clock");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+  private static volatile long                  epochMicrosOffset        = alignedOffsetMicros();
+  private RabbitMQTransportMetrics              metrics;
+  private volatile boolean                      publishTimestamp         = false;
+
+  static
+  {
+    CLOCK.scheduleWithFixedDelay(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          long offset = System.currentTimeMillis() * 1000 - System.nanoTime() / 1000;
+          if (Math.abs(offset - epochMicrosOffset) > DRIFT_TOLERANCE_MICROS)
+            epochMicrosOffset = offset;
+        }
+      }, 1, 1, TimeUnit.SECONDS);
+  }
 
   public RabbitMQProducer(RabbitMQConnectionInfo connectionInfo, RabbitMQExchange exchange)
   {
     super(connectionInfo, exchange);
   }
 
+  public void setMetrics(RabbitMQTransportMetrics metrics)
+  {
+    this.metrics = metrics;
+  }
+
+  public void setPublishTimestamp(boolean value)
+  {
+    this.publishTimestamp = value;
+  }
+
+  // the Java 8 wall clock only ticks in milliseconds, so it is anchored once and advanced by the monotonic clock
+  static long currentTimeMicros()
+  {
+    return System.nanoTime() / 1000 + epochMicrosOffset;
+  }
+
+  // taken on a wall clock tick so the anchor is not off by up to a tick, this only waits once at class load
+  private static long alignedOffsetMicros()
+  {
+    long start = System.currentTimeMillis();
+    long millis;
+    while ((millis = System.currentTimeMillis()) == start)
+      ;
+    return millis * 1000 - System.nanoTime() / 1000;
+  }
+
   public void send(final ByteBuffer buffer) throws RabbitMQTransportException
+  {
+    send(buffer, exchange.getRoutingKey());
+  }
+
+  public void send(final ByteBuffer buffer, String routingKey) throws RabbitMQTransportException
   {
     if (buffer == null || !buffer.hasRemaining())
     {
@@ -51,14 +121,31 @@ public class RabbitMQProducer extends RabbitMQConnectionBroker.RabbitMQComponent
     {
       try
       {
-        channel.basicPublish(exchange.getName(), exchange.getRoutingKey(), null, buffer.array());
+        AMQP.BasicProperties properties = null;
+        if (publishTimestamp)
+          properties = new AMQP.BasicProperties.Builder().headers(Collections.<String, Object>singletonMap(PUBLISH_TIMESTAMP_HEADER, currentTimeMicros())).build();
+        Object event = RabbitMQFlightRecorder.beginPublish();
+        long start = System.nanoTime();
+        channel.basicPublish(exchange.getName(), routingKey, properties, buffer.array());
+        RabbitMQFlightRecorder.commit(event, "Outbound", exchange.getName(), buffer.remaining());
+        if (metrics != null)
+        {
+          metrics.recordPublish(System.nanoTime() - start);
+          metrics.messageProcessed(buffer.remaining());
+        }
       }
       catch (IOException e)
       {
+        if (metrics != null)
+          metrics.errorOccurred();
         String msg = LOGGER.translate("TRANSPORT_OUT_FAILED_TO_SEND_MESSAGE_ERROR");
         LOGGER.error(msg);
         throw new RabbitMQTransportException(msg, e);
       }
     }
+    else if (metrics != null)
+    {
+      metrics.messageDropped();
+    }
   }
 }
@@ -24,6 +24,12 @@
 
 package com.esri.geoevent.transport.rabbitmq;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import com.esri.ges.core.validation.Validatable;
 import com.esri.ges.core.validation.ValidationException;
 import com.esri.ges.framework.i18n.BundleLogger;
@@ -38,13 +44,64 @@ public class RabbitMQQueue implements Validatable
   private RabbitMQDurability        durability;
   private boolean                   exclusive;
   private boolean                   autoDelete;
+  private RabbitMQQueueType         type;
+  private RabbitMQStreamStart       streamStart;
+  private String                    streamStartValue;
+  private int                       shardCount;
+  private int[]                     shardWeights;
+  private String                    shardWeightsText;
+  private RabbitMQQueueArguments    arguments;
 
   public RabbitMQQueue(String name, String durability, String exclusive, String autoDelete)
+  {
+    this(name, durability, exclusive, autoDelete, null, null);
+  }
+
+  public RabbitMQQueue(String name, String durability, String exclusive, String autoDelete, String shardCount, String shardWeights)
+  {
+    this(name, durability, exclusive, autoDelete, shardCount, shardWeights, null, null, null);
+  }
+
+  public RabbitMQQueue(String name, String durability, String exclusive, String autoDelete, String shardCount, String shardWeights, String type, String streamStart, String streamStartValue)
+  {
+    this(name, durability, exclusive, autoDelete, shardCount, shardWeights, type, streamStart, streamStartValue, null);
+  }
+
+  public RabbitMQQueue(String name, String durability, String exclusive, String autoDelete, String shardCount, String shardWeights, String type, String streamStart, String streamStartValue, RabbitMQQueueArguments arguments)
   {
     this.name = name;
+    this.type = Validator.valueOfIgnoreCase(RabbitMQQueueType.class, type, RabbitMQQueueType.Classic);
     this.durability = Validator.valueOfIgnoreCase(RabbitMQDurability.class, durability, RabbitMQDurability.Transient);
     this.exclusive = Converter.convertToBoolean(exclusive, false);
     this.autoDelete = Converter.convertToBoolean(autoDelete, true);
+    if (this.type != RabbitMQQueueType.Classic)
+    {
+      // the broker only accepts quorum queues and streams that are durable, shared and kept
+      this.durability = RabbitMQDurability.Durable;
+      this.exclusive = false;
+      this.autoDelete = false;
+    }
+    this.streamStart = Validator.valueOfIgnoreCase(RabbitMQStreamStart.class, streamStart, RabbitMQStreamStart.Next);
+    this.streamStartValue = (streamStartValue != null) ? streamStartValue.trim() : "";
+    this.shardCount = Math.max(1, Converter.convertToInteger(shardCount, 1));
+    this.shardWeightsText = shardWeights;
+    this.shardWeights = parseWeights(shardWeights, this.shardCount);
+    this.arguments = (arguments != null) ? arguments : new RabbitMQQueueArguments(null, null, null, null, null);
+  }
+
+  // missing weights repeat the last one given, no weights at all means every shard weighs 1
+  private static int[] parseWeights(String text, int count)
+  {
+    int[] weights = new int[count];
+    String[] parts = (text != null && !text.trim().isEmpty()) ? text.split(",") : new String[0];
+    int last = 1;
+    for (int i = 0; i < count; i++)
+    {
+      if (i < parts.length)
+        last = Converter.convertToInteger(parts[i].trim(), 0);
+      weights[i] = last;
+    }
+    return weights;
   }
 
   public String getName()
@@ -67,10 +124,108 @@ public class RabbitMQQueue implements Validatable
     return autoDelete;
   }
 
+  public RabbitMQQueueType getType()
+  {
+    return type;
+  }
+
+  public boolean isStream()
+  {
+    return RabbitMQQueueType.Stream.equals(type);
+  }
+
+  // declaration arguments, null for a classic queue left at the broker defaults
+  public Map<String, Object> getArguments()
+  {
+    Map<String, Object> declaration = new LinkedHashMap<String, Object>();
+    if (type != RabbitMQQueueType.Classic)
+      declaration.put("x-queue-type", type.toString().toLowerCase());
+    arguments.putInto(declaration);
+    return declaration.isEmpty() ? null : declaration;
+  }
+
+  // the x-stream-offset consumer argument for the configured start, a timestamp is sent as an AMQP timestamp
+  public Object getStreamOffset()
+  {
+    switch (streamStart)
+    {
+      case First:
+        return "first";
+      case Last:
+        return "last";
+      case Offset:
+        return Long.valueOf(streamStartValue);
+      case Timestamp:
+        return parseTimestamp(streamStartValue);
+      default:
+        return "next";
+    }
+  }
+
+  // ISO 8601 like 2017-07-14T02:40:00Z or milliseconds since the epoch
+  private static Date parseTimestamp(String value)
+  {
+    try
+    {
+      return Date.from(Instant.parse(value));
+    }
+    catch (DateTimeParseException e)
+    {
+      return new Date(Long.parseLong(value));
+    }
+  }
+
+  // the broker delivers to one consumer of the queue at a time and fails over to the next when it goes
+  public boolean isSingleActiveConsumer()
+  {
+    return arguments.isSingleActiveConsumer();
+  }
+
+  public boolean isSharded()
+  {
+    return shardCount > 1;
+  }
+
+  public int getShardCount()
+  {
+    return shardCount;
+  }
+
+  // shard queues are named after the queue with their index appended, an unsharded queue is its own only shard
+  public RabbitMQQueue getShard(int index)
+  {
+    if (!isSharded())
+      return this;
+    return new RabbitMQQueue(name + "." + index, durability.toString(), Boolean.toString(exclusive), Boolean.toString(autoDelete), null, null, type.toString(), streamStart.toString(), streamStartValue, arguments);
+  }
+
+  // the binding key of a shard, a consistent hash exchange reads it as the shard's share of the hash space
+  public String getShardBindingKey(int index)
+  {
+    return Integer.toString(shardWeights[index]);
+  }
+
   @Override
   public void validate() throws ValidationException
   {
     if (name == null || name.isEmpty())
       throw new ValidationException(LOGGER.translate("QUEUE_NAME_VALIDATE_ERROR"));
+    for (int weight : shardWeights)
+      if (weight < 1)
+        throw new ValidationException(LOGGER.translate("QUEUE_SHARD_WEIGHTS_VALIDATE_ERROR", shardWeightsText));
+    arguments.validate(type);
+    if (isStream() && isSharded())
+      throw new ValidationException(LOGGER.translate("QUEUE_STREAM_SHARD_VALIDATE_ERROR"));
+    if (isStream() && (streamStart == RabbitMQStreamStart.Offset || streamStart == RabbitMQStreamStart.Timestamp))
+    {
+      try
+      {
+        getStreamOffset();
+      }
+      catch (NumberFormatException e)
+      {
+        throw new ValidationException(LOGGER.translate("QUEUE_STREAM_START_VALIDATE_ERROR", streamStart, streamStartValue));
+      }
+    }
   }
 }
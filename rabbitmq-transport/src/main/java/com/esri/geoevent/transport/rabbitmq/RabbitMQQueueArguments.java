@@ -0,0 +1,137 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.util.Map;
+
+import com.esri.ges.core.validation.ValidationException;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.util.Converter;
+import com.esri.ges.util.Validator;
+
+// the optional x- arguments of a queue declaration, an empty value leaves the broker default in place
+public class RabbitMQQueueArguments
+{
+  private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(RabbitMQQueueArguments.class);
+  private RabbitMQQueueMode         mode;
+  private RabbitMQQueueOverflow     overflow;
+  private String                    maxLength;
+  private String                    maxLengthBytes;
+  private String                    messageTtl;
+  private boolean                   singleActiveConsumer;
+
+  public RabbitMQQueueArguments(String mode, String maxLength, String maxLengthBytes, String overflow, String messageTtl)
+  {
+    this(mode, maxLength, maxLengthBytes, overflow, messageTtl, null);
+  }
+
+  public RabbitMQQueueArguments(String mode, String maxLength, String maxLengthBytes, String overflow, String messageTtl, String singleActiveConsumer)
+  {
+    this.mode = Validator.valueOfIgnoreCase(RabbitMQQueueMode.class, mode, RabbitMQQueueMode.Default);
+    this.overflow = Validator.valueOfIgnoreCase(RabbitMQQueueOverflow.class, overflow, RabbitMQQueueOverflow.DropHead);
+    this.maxLength = trim(maxLength);
+    this.maxLengthBytes = trim(maxLengthBytes);
+    this.messageTtl = trim(messageTtl);
+    this.singleActiveConsumer = Converter.convertToBoolean(singleActiveConsumer, false);
+  }
+
+  private static String trim(String value)
+  {
+    return (value != null) ? value.trim() : "";
+  }
+
+  public RabbitMQQueueMode getMode()
+  {
+    return mode;
+  }
+
+  public RabbitMQQueueOverflow getOverflow()
+  {
+    return overflow;
+  }
+
+  public boolean isSingleActiveConsumer()
+  {
+    return singleActiveConsumer;
+  }
+
+  // adds the arguments that differ from the broker defaults, typed the way the broker expects them
+  public void putInto(Map<String, Object> arguments)
+  {
+    if (mode == RabbitMQQueueMode.Lazy)
+      arguments.put("x-queue-mode", "lazy");
+    if (!maxLength.isEmpty())
+      arguments.put("x-max-length", Integer.valueOf(maxLength));
+    if (!maxLengthBytes.isEmpty())
+      arguments.put("x-max-length-bytes", Long.valueOf(maxLengthBytes));
+    if (overflow != RabbitMQQueueOverflow.DropHead)
+      arguments.put("x-overflow", overflow.getAmqpValue());
+    if (!messageTtl.isEmpty())
+      arguments.put("x-message-ttl", Integer.valueOf(messageTtl));
+    if (singleActiveConsumer)
+      arguments.put("x-single-active-consumer", Boolean.TRUE);
+  }
+
+  // lazy mode is classic only, streams only take a byte limit and no single active consumer, quorum queues cannot dead letter rejected publishes
+  public void validate(RabbitMQQueueType type) throws ValidationException
+  {
+    validateNumber("x-max-length", maxLength, false);
+    validateNumber("x-max-length-bytes", maxLengthBytes, true);
+    validateNumber("x-message-ttl", messageTtl, false);
+    if (mode == RabbitMQQueueMode.Lazy && type != RabbitMQQueueType.Classic)
+      throw new ValidationException(LOGGER.translate("QUEUE_ARGUMENT_TYPE_VALIDATE_ERROR", "x-queue-mode", type));
+    if (type == RabbitMQQueueType.Stream)
+    {
+      if (!maxLength.isEmpty())
+        throw new ValidationException(LOGGER.translate("QUEUE_ARGUMENT_TYPE_VALIDATE_ERROR", "x-max-length", type));
+      if (overflow != RabbitMQQueueOverflow.DropHead)
+        throw new ValidationException(LOGGER.translate("QUEUE_ARGUMENT_TYPE_VALIDATE_ERROR", "x-overflow", type));
+      if (!messageTtl.isEmpty())
+        throw new ValidationException(LOGGER.translate("QUEUE_ARGUMENT_TYPE_VALIDATE_ERROR", "x-message-ttl", type));
+      if (singleActiveConsumer)
+        throw new ValidationException(LOGGER.translate("QUEUE_ARGUMENT_TYPE_VALIDATE_ERROR", "x-single-active-consumer", type));
+    }
+    if (type == RabbitMQQueueType.Quorum && overflow == RabbitMQQueueOverflow.RejectPublishDlx)
+      throw new ValidationException(LOGGER.translate("QUEUE_ARGUMENT_TYPE_VALIDATE_ERROR", "x-overflow=" + overflow.getAmqpValue(), type));
+  }
+
+  private static void validateNumber(String argument, String value, boolean isLong) throws ValidationException
+  {
+    if (value.isEmpty())
+      return;
+    try
+    {
+      long number = isLong ? Long.parseLong(value) : Integer.parseInt(value);
+      if (number >= 0)
+        return;
+    }
+    catch (NumberFormatException e)
+    {
+      ;
+    }
+    throw new ValidationException(LOGGER.translate("QUEUE_ARGUMENT_VALIDATE_ERROR", argument, value));
+  }
+}
@@ -0,0 +1,171 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.rabbitmq.client.AMQP;
+
+public class RabbitMQQueueDepthProbe implements Runnable
+{
+  private static final BundleLogger             LOGGER    = BundleLoggerFactory.getLogger(RabbitMQQueueDepthProbe.class);
+  // one low priority thread samples the queues of every inbound transport
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+        Thread thread = new Thread(runnable, "rabbitmq-queue-probe");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+  private final RabbitMQConsumer                consumer;
+  private final RabbitMQTransportMetrics        metrics;
+  private int                                   lagThreshold;
+  private ScheduledFuture<?>                    future;
+  private long                                  lastSampleTime;
+  private long                                  lastDepth;
+  private long                                  lastDelivered;
+  private boolean                               lagging   = false;
+  private RabbitMQConsumerRole                  role;
+
+  public RabbitMQQueueDepthProbe(RabbitMQConsumer consumer, RabbitMQTransportMetrics metrics, int lagThreshold)
+  {
+    this.consumer = consumer;
+    this.metrics = metrics;
+    this.lagThreshold = lagThreshold;
+  }
+
+  public synchronized void start(int intervalSeconds)
+  {
+    stop();
+    role = null;
+    metrics.recordConsumerRole(null);
+    if (intervalSeconds > 0)
+    {
+      lastSampleTime = 0;
+      future = SCHEDULER.scheduleWithFixedDelay(this, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  public synchronized void setLagThreshold(int value)
+  {
+    this.lagThreshold = value;
+  }
+
+  public synchronized void stop()
+  {
+    if (future != null)
+    {
+      future.cancel(false);
+      future = null;
+    }
+  }
+
+  @Override
+  public synchronized void run()
+  {
+    if (!consumer.isConnected())
+      return;
+    AMQP.Queue.DeclareOk sample;
+    try
+    {
+      sample = consumer.probeQueue();
+    }
+    catch (Exception e)
+    {
+      LOGGER.debug("QUEUE_PROBE_ERROR", e.getMessage());
+      return;
+    }
+    long now = System.nanoTime();
+    long brokerDepth = sample.getMessageCount();
+    int localBacklog = consumer.getLocalBacklog();
+    // the broker pushes auto-acknowledged messages straight to this node, a slow adapter builds its backlog here
+    long depth = brokerDepth + localBacklog;
+    long delivered = metrics.getMessages();
+    if (lastSampleTime != 0)
+    {
+      double seconds = (now - lastSampleTime) / 1e9;
+      // only this node's deliveries are known, whatever else left the queue shows up as lower ingress
+      double egress = Math.max(0, delivered - lastDelivered) / seconds;
+      double ingress = Math.max(0, (depth - lastDepth) / seconds + egress);
+      long timeToDrain = (depth == 0) ? 0 : (egress > ingress) ? (long) Math.ceil(depth / (egress - ingress)) : -1;
+      metrics.recordQueueSample(brokerDepth, localBacklog, sample.getConsumerCount(), ingress, egress, timeToDrain);
+    }
+    else
+      metrics.recordQueueSample(brokerDepth, localBacklog, sample.getConsumerCount(), 0, 0, (depth == 0) ? 0 : -1);
+    if (consumer.isSingleActiveConsumer())
+      checkRole(brokerDepth, sample.getConsumerCount(), (lastSampleTime != 0) ? delivered - lastDelivered : 0);
+    lastSampleTime = now;
+    lastDepth = depth;
+    lastDelivered = delivered;
+    checkLag(depth);
+  }
+
+  // the broker does not tell a consumer that it became the active one, it shows in what arrives: with no other
+  // consumer or with deliveries since the last sample this node is active, messages waiting without any mean another is
+  private void checkRole(long depth, int consumers, long deliveredSince)
+  {
+    RabbitMQConsumerRole next = role;
+    if (consumers <= consumer.getShardCount() || deliveredSince > 0)
+      next = RabbitMQConsumerRole.Active;
+    else if (depth > 0 && lastSampleTime != 0)
+      next = RabbitMQConsumerRole.Standby;
+    if (next != role)
+    {
+      role = next;
+      metrics.recordConsumerRole(next);
+      LOGGER.info("CONSUMER_ROLE_CHANGED", consumer.getQueueName(), next);
+    }
+  }
+
+  private void checkLag(long depth)
+  {
+    // a threshold switched off while lagging clears the condition
+    boolean exceeded = lagThreshold > 0 && depth >= lagThreshold;
+    if (!lagging && exceeded)
+    {
+      lagging = true;
+      String msg = LOGGER.translate("QUEUE_LAG_EXCEEDED", consumer.getQueueName(), depth, lagThreshold);
+      LOGGER.warn(msg);
+      consumer.notifyListeners(RabbitMQConnectionStatus.QUEUE_LAG_EXCEEDED, msg);
+    }
+    else if (lagging && !exceeded)
+    {
+      lagging = false;
+      String msg = LOGGER.translate("QUEUE_LAG_CLEARED", consumer.getQueueName(), depth, lagThreshold);
+      LOGGER.info(msg);
+      consumer.notifyListeners(RabbitMQConnectionStatus.QUEUE_LAG_CLEARED, msg);
+    }
+  }
+}
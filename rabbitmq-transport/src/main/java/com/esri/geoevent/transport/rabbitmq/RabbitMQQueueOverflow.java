@@ -24,43 +24,21 @@
 
 package com.esri.geoevent.transport.rabbitmq;
 
-public class RabbitMQTransportEvent
+// what a queue at its length limit does with a new message
+public enum RabbitMQQueueOverflow
 {
-  private RabbitMQConnectionStatus status;
-  private String                   details = "";
-  private Object[]                 args;
+  DropHead("drop-head"), RejectPublish("reject-publish"), RejectPublishDlx("reject-publish-dlx");
 
-  public RabbitMQTransportEvent(RabbitMQConnectionStatus status, String details, Object... args)
-  {
-    this.status = status;
-    this.details = details;
-    this.args = args;
-  }
-
-  public RabbitMQConnectionStatus getStatus()
-  {
-    return status;
-  }
-
-  public String getDetails()
-  {
-    return details;
-  }
+  private final String amqpValue;
 
-  public Object[] getArgs()
+  private RabbitMQQueueOverflow(String amqpValue)
   {
-    return args;
+    this.amqpValue = amqpValue;
   }
 
-  @Override
-  public String toString()
+  // the x-overflow argument value
+  public String getAmqpValue()
   {
-    StringBuffer sb = new StringBuffer();
-    sb.append("RabbitMQTransportEvent(");
-    sb.append(status);
-    sb.append(", ");
-    sb.append(details);
-    sb.append(")");
-    return sb.toString();
+    return amqpValue;
   }
 }
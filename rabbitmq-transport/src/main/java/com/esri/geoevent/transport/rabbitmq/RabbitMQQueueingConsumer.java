@@ -40,12 +40,26 @@ import com.rabbitmq.client.ShutdownSignalException;
 public class RabbitMQQueueingConsumer implements Consumer
 {
   private final Channel                 channel;
+  private final String                  queueName;
   private volatile String               consumerTag;
-  private final BlockingQueue<Delivery> queue = new LinkedBlockingQueue<Delivery>();
+  private final BlockingQueue<Delivery> queue;
 
   public RabbitMQQueueingConsumer(Channel channel)
+  {
+    this(channel, null);
+  }
+
+  public RabbitMQQueueingConsumer(Channel channel, String queueName)
+  {
+    this(channel, queueName, new LinkedBlockingQueue<Delivery>());
+  }
+
+  // consumers of several queues can share one delivery queue, each queue's deliveries keep their order in it
+  public RabbitMQQueueingConsumer(Channel channel, String queueName, BlockingQueue<Delivery> queue)
   {
     this.channel = channel;
+    this.queueName = queueName;
+    this.queue = queue;
   }
 
   public Channel getChannel()
@@ -53,6 +67,16 @@ public class RabbitMQQueueingConsumer implements Consumer
     return channel;
   }
 
+  public String getQueueName()
+  {
+    return queueName;
+  }
+
+  BlockingQueue<Delivery> getDeliveryQueue()
+  {
+    return queue;
+  }
+
   public String getConsumerTag()
   {
     return consumerTag;
@@ -73,7 +97,9 @@ public class RabbitMQQueueingConsumer implements Consumer
   @Override
   public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException
   {
+    Object event = RabbitMQFlightRecorder.beginDelivery();
     queue.add(new Delivery(envelope, properties, body));
+    RabbitMQFlightRecorder.commit(event, "Inbound", queueName, body.length);
   }
 
   public Delivery nextDelivery() throws InterruptedException, ShutdownSignalException, ConsumerCancelledException
@@ -109,6 +135,7 @@ public class RabbitMQQueueingConsumer implements Consumer
     private final Envelope             envelope;
     private final AMQP.BasicProperties properties;
     private final byte[]               body;
+    private final long                 received = System.nanoTime();
 
     public Delivery(Envelope envelope, AMQP.BasicProperties properties, byte[] body)
     {
@@ -131,5 +158,10 @@ public class RabbitMQQueueingConsumer implements Consumer
     {
       return body;
     }
+
+    public long getReceived()
+    {
+      return received;
+    }
   }
 }
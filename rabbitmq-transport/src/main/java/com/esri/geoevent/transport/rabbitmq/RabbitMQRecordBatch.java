@@ -0,0 +1,96 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Collects records behind unsigned varint lengths into one message body, not thread safe
+public class RabbitMQRecordBatch
+{
+  private byte[] buffer;
+  private int    length;
+  private int    records;
+
+  public RabbitMQRecordBatch()
+  {
+    this(4096);
+  }
+
+  public RabbitMQRecordBatch(int initialCapacity)
+  {
+    buffer = new byte[Math.max(16, initialCapacity)];
+  }
+
+  // the record is copied from its position to its limit, the caller's buffer is left untouched
+  public void add(ByteBuffer record)
+  {
+    int size = record.remaining();
+    ensure(5 + size);
+    int value = size;
+    while ((value & ~0x7F) != 0)
+    {
+      buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[length++] = (byte) value;
+    if (record.hasArray())
+      System.arraycopy(record.array(), record.arrayOffset() + record.position(), buffer, length, size);
+    else
+      record.duplicate().get(buffer, length, size);
+    length += size;
+    records++;
+  }
+
+  public int getRecords()
+  {
+    return records;
+  }
+
+  public int getLength()
+  {
+    return length;
+  }
+
+  public boolean isEmpty()
+  {
+    return records == 0;
+  }
+
+  // an exact copy, the producer publishes the whole backing array of the buffer it is given
+  public byte[] drain()
+  {
+    byte[] body = Arrays.copyOf(buffer, length);
+    length = 0;
+    records = 0;
+    return body;
+  }
+
+  private void ensure(int more)
+  {
+    if (length + more > buffer.length)
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + more));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.nio.ByteBuffer;
+
+// Walks the records of a length prefixed message body, every record is a slice of the body so nothing is copied.
+// A length that is not a valid varint or runs past the end of the body ends the walk and marks the body malformed,
+// the records before it have already been handed out.
+public class RabbitMQRecordSplitter
+{
+  private final byte[] body;
+  private int          position    = 0;
+  private int          records     = 0;
+  private int          malformedAt = -1;
+
+  public RabbitMQRecordSplitter(byte[] body)
+  {
+    this.body = body;
+  }
+
+  // the next record, or null when the body is exhausted or malformed, empty records are skipped
+  public ByteBuffer next()
+  {
+    while (position < body.length)
+    {
+      int start = position;
+      int length = 0;
+      for (int shift = 0;; shift += 7)
+      {
+        if (position == body.length || (shift == 28 && (body[position] & 0xF8) != 0))
+          return malformed(start);
+        byte b = body[position++];
+        length |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0)
+          break;
+      }
+      if (length > body.length - position)
+        return malformed(start);
+      if (length == 0)
+        continue;
+      ByteBuffer record = ByteBuffer.wrap(body, position, length).slice();
+      position += length;
+      records++;
+      return record;
+    }
+    return null;
+  }
+
+  private ByteBuffer malformed(int start)
+  {
+    malformedAt = start;
+    position = body.length;
+    return null;
+  }
+
+  public int getRecords()
+  {
+    return records;
+  }
+
+  public boolean isMalformed()
+  {
+    return malformedAt >= 0;
+  }
+
+  // offset of the length prefix that could not be read, -1 when the body is well formed
+  public int getMalformedAt()
+  {
+    return malformedAt;
+  }
+}
@@ -0,0 +1,146 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+
+// Remembers the offset of the last stream message handed to the adapter. Updating it only stores the offset, a
+// shared background thread writes changed offsets to <queue>.offset every interval and closing writes the last one.
+// Without a directory the offset only survives reconnects, not restarts.
+public class RabbitMQStreamCheckpoint implements Runnable
+{
+  private static final BundleLogger             LOGGER    = BundleLoggerFactory.getLogger(RabbitMQStreamCheckpoint.class);
+  private static final Charset                  UTF8      = Charset.forName("UTF-8");
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+        Thread thread = new Thread(runnable, "rabbitmq-stream-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  private final File                            file;
+  private volatile long                         offset;
+  private long                                  written;
+  private ScheduledFuture<?>                    future;
+  private boolean                               failed    = false;
+
+  public RabbitMQStreamCheckpoint(File directory, String queueName, int intervalMillis)
+  {
+    file = (directory != null) ? new File(directory, queueName.replaceAll("[^A-Za-z0-9._-]", "_") + ".offset") : null;
+    offset = written = read();
+    if (file != null)
+      future = SCHEDULER.scheduleWithFixedDelay(this, Math.max(10, intervalMillis), Math.max(10, intervalMillis), TimeUnit.MILLISECONDS);
+  }
+
+  public File getFile()
+  {
+    return file;
+  }
+
+  // -1 until a message has been processed
+  public long getOffset()
+  {
+    return offset;
+  }
+
+  public void update(long value)
+  {
+    offset = value;
+  }
+
+  @Override
+  public void run()
+  {
+    flush();
+  }
+
+  public synchronized void flush()
+  {
+    long current = offset;
+    if (file != null && current != written)
+      write(current);
+  }
+
+  public synchronized void close()
+  {
+    if (future != null)
+    {
+      future.cancel(false);
+      future = null;
+    }
+    flush();
+  }
+
+  private long read()
+  {
+    if (file == null || !file.exists())
+      return -1;
+    try
+    {
+      return Long.parseLong(new String(Files.readAllBytes(file.toPath()), UTF8).trim());
+    }
+    catch (IOException | NumberFormatException e)
+    {
+      LOGGER.warn("STREAM_CHECKPOINT_READ_ERROR", file.getAbsolutePath(), e.getMessage());
+      return -1;
+    }
+  }
+
+  // written beside the checkpoint and moved over it, so a crash never leaves a half written offset behind
+  private void write(long value)
+  {
+    File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+    try
+    {
+      file.getParentFile().mkdirs();
+      Files.write(temporary.toPath(), Long.toString(value).getBytes(UTF8));
+      Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      written = value;
+      failed = false;
+    }
+    catch (IOException e)
+    {
+      // reported once until a write succeeds again
+      if (!failed)
+        LOGGER.warn("STREAM_CHECKPOINT_WRITE_ERROR", file.getAbsolutePath(), e.getMessage());
+      failed = true;
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+
+import com.esri.ges.core.validation.Validatable;
+import com.esri.ges.core.validation.ValidationException;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.util.Converter;
+
+public class RabbitMQTlsSettings implements Validatable
+{
+  private static final BundleLogger LOGGER             = BundleLoggerFactory.getLogger(RabbitMQTlsSettings.class);
+  // the context algorithm, "TLS" covers every version and the enabled protocols pick among them
+  private static final String       CONTEXT_PROTOCOL   = "TLS";
+  private static final int          SESSION_CACHE_SIZE = 1000;
+  private static final int          SESSION_TIMEOUT    = 86400;
+  private String[]                  protocols;
+  private String                    trustStore;
+  private String                    trustStorePassword;
+  private String                    keyStore;
+  private String                    keyStorePassword;
+  private String[]                  cipherSuites;
+  private boolean                   verifyHostname;
+  private SSLContext                sslContext;
+
+  public RabbitMQTlsSettings()
+  {
+    this(null, null, null, null, null, null, null);
+  }
+
+  public RabbitMQTlsSettings(String protocol, String trustStore, String trustStorePassword, String keyStore, String keyStorePassword, String cipherSuites, String verifyHostname)
+  {
+    this.protocols = split(protocol);
+    this.trustStore = trustStore;
+    this.trustStorePassword = trustStorePassword;
+    this.keyStore = keyStore;
+    this.keyStorePassword = keyStorePassword;
+    this.cipherSuites = split(cipherSuites);
+    this.verifyHostname = Converter.convertToBoolean(verifyHostname, true);
+  }
+
+  // the protocols enabled on every connection, empty for the JVM defaults
+  public String[] getProtocols()
+  {
+    return protocols;
+  }
+
+  public boolean isVerifyHostname()
+  {
+    return verifyHostname;
+  }
+
+  // built once and shared by every connection of the owning connection info so reconnects can resume TLS sessions
+  public synchronized SSLContext getSslContext() throws GeneralSecurityException, IOException
+  {
+    if (sslContext == null)
+    {
+      SSLContext context = SSLContext.getInstance(CONTEXT_PROTOCOL);
+      context.init(createKeyManagers(), createTrustManagers(), null);
+      context.getClientSessionContext().setSessionCacheSize(SESSION_CACHE_SIZE);
+      context.getClientSessionContext().setSessionTimeout(SESSION_TIMEOUT);
+      sslContext = context;
+    }
+    return sslContext;
+  }
+
+  public void configure(SSLSocket socket)
+  {
+    SSLParameters parameters = socket.getSSLParameters();
+    if (protocols.length > 0)
+      parameters.setProtocols(protocols);
+    if (cipherSuites.length > 0)
+      parameters.setCipherSuites(cipherSuites);
+    if (verifyHostname)
+      parameters.setEndpointIdentificationAlgorithm("HTTPS");
+    socket.setSSLParameters(parameters);
+  }
+
+  private KeyManager[] createKeyManagers() throws GeneralSecurityException, IOException
+  {
+    if (isEmpty(keyStore))
+      return null;
+    char[] password = (keyStorePassword != null) ? keyStorePassword.toCharArray() : null;
+    KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    factory.init(loadKeyStore(keyStore, password), password);
+    return factory.getKeyManagers();
+  }
+
+  private TrustManager[] createTrustManagers() throws GeneralSecurityException, IOException
+  {
+    // without a trust store the JVM default trust anchors apply
+    TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    factory.init(isEmpty(trustStore) ? null : loadKeyStore(trustStore, (trustStorePassword != null) ? trustStorePassword.toCharArray() : null));
+    return factory.getTrustManagers();
+  }
+
+  private static KeyStore loadKeyStore(String path, char[] password) throws GeneralSecurityException, IOException
+  {
+    String lowerCasePath = path.toLowerCase();
+    KeyStore store = KeyStore.getInstance((lowerCasePath.endsWith(".p12") || lowerCasePath.endsWith(".pfx")) ? "PKCS12" : KeyStore.getDefaultType());
+    try (InputStream in = new FileInputStream(path))
+    {
+      store.load(in, password);
+    }
+    return store;
+  }
+
+  private static String[] split(String value)
+  {
+    List<String> values = new ArrayList<String>();
+    if (value != null)
+      for (String item : value.split(","))
+        if (!item.trim().isEmpty())
+          values.add(item.trim());
+    return values.toArray(new String[values.size()]);
+  }
+
+  private static boolean isEmpty(String value)
+  {
+    return value == null || value.trim().isEmpty();
+  }
+
+  @Override
+  public void validate() throws ValidationException
+  {
+    if (protocols.length == 0)
+      return;
+    List<String> supported;
+    try
+    {
+      SSLContext context = SSLContext.getInstance(CONTEXT_PROTOCOL);
+      context.init(null, null, null);
+      supported = Arrays.asList(context.getSupportedSSLParameters().getProtocols());
+    }
+    catch (GeneralSecurityException e)
+    {
+      throw new ValidationException(LOGGER.translate("TLS_PROTOCOL_VALIDATE_ERROR", CONTEXT_PROTOCOL));
+    }
+    for (String protocol : protocols)
+      if (!supported.contains(protocol))
+        throw new ValidationException(LOGGER.translate("TLS_PROTOCOL_VALIDATE_ERROR", protocol));
+  }
+}
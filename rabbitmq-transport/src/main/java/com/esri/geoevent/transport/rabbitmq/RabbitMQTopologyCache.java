@@ -0,0 +1,183 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.rabbitmq.client.Channel;
+
+public class RabbitMQTopologyCache
+{
+  // declarations already made on the current connection, in the order they were made
+  private final Map<String, TopologyDeclaration> declared = new LinkedHashMap<String, TopologyDeclaration>();
+
+  public void declareExchange(Channel channel, final RabbitMQExchange exchange, final boolean passive) throws IOException
+  {
+    declare(channel, exchangeKey(exchange), new TopologyDeclaration()
+      {
+        @Override
+        public void declare(Channel channel) throws IOException
+        {
+          if (passive)
+            channel.exchangeDeclarePassive(exchange.getName());
+          else
+            channel.exchangeDeclare(exchange.getName(), exchange.getType().getAmqpType(), exchange.isDurable(), exchange.isAutoDelete(), exchange.getArguments());
+        }
+      });
+  }
+
+  public void declareQueue(Channel channel, final RabbitMQQueue queue, final boolean passive) throws IOException
+  {
+    declare(channel, queueKey(queue), new TopologyDeclaration()
+      {
+        @Override
+        public void declare(Channel channel) throws IOException
+        {
+          if (passive)
+            channel.queueDeclarePassive(queue.getName());
+          else
+            channel.queueDeclare(queue.getName(), queue.isDurable(), queue.isExclusive(), queue.isAutoDelete(), queue.getArguments());
+        }
+
+        @Override
+        public boolean isShareable()
+        {
+          return !queue.isExclusive();
+        }
+      });
+  }
+
+  public void bindQueue(Channel channel, RabbitMQQueue queue, RabbitMQExchange exchange, boolean passive) throws IOException
+  {
+    bindQueue(channel, queue, exchange, exchange.getRoutingKey(), passive);
+  }
+
+  public void bindQueue(Channel channel, final RabbitMQQueue queue, final RabbitMQExchange exchange, final String routingKey, boolean passive) throws IOException
+  {
+    // bindings cannot be verified passively, pre-provisioned topologies are expected to carry them
+    if (passive)
+      return;
+    declare(channel, bindingKey(queue, exchange) + routingKey, new TopologyDeclaration()
+      {
+        @Override
+        public void declare(Channel channel) throws IOException
+        {
+          channel.queueBind(queue.getName(), exchange.getName(), routingKey);
+        }
+
+        @Override
+        public boolean isShareable()
+        {
+          return !queue.isExclusive();
+        }
+      });
+  }
+
+  public void primeFrom(RabbitMQTopologyCache source, Channel channel) throws IOException
+  {
+    List<Map.Entry<String, TopologyDeclaration>> entries;
+    synchronized (source.declared)
+    {
+      entries = new ArrayList<Map.Entry<String, TopologyDeclaration>>(source.declared.entrySet());
+    }
+    // exclusive queues belong to the connection that declared them and cannot be prepared elsewhere
+    for (Map.Entry<String, TopologyDeclaration> entry : entries)
+      if (entry.getValue().isShareable())
+        declare(channel, entry.getKey(), entry.getValue());
+  }
+
+  public void forgetExchange(RabbitMQExchange exchange)
+  {
+    synchronized (declared)
+    {
+      declared.remove(exchangeKey(exchange));
+    }
+  }
+
+  public void forgetQueue(RabbitMQQueue queue, RabbitMQExchange exchange)
+  {
+    synchronized (declared)
+    {
+      declared.remove(queueKey(queue));
+      // whatever routing key the queue was bound with
+      String binding = bindingKey(queue, exchange);
+      for (Iterator<String> keys = declared.keySet().iterator(); keys.hasNext();)
+        if (keys.next().startsWith(binding))
+          keys.remove();
+    }
+  }
+
+  public void invalidate()
+  {
+    synchronized (declared)
+    {
+      declared.clear();
+    }
+  }
+
+  private void declare(Channel channel, String key, TopologyDeclaration declaration) throws IOException
+  {
+    synchronized (declared)
+    {
+      if (declared.containsKey(key))
+        return;
+    }
+    declaration.declare(channel);
+    synchronized (declared)
+    {
+      declared.put(key, declaration);
+    }
+  }
+
+  private static String exchangeKey(RabbitMQExchange exchange)
+  {
+    return "exchange:" + exchange.getName() + ":" + exchange.getType() + ":" + exchange.isDurable() + ":" + exchange.isAutoDelete() + ":" + exchange.getArguments();
+  }
+
+  private static String queueKey(RabbitMQQueue queue)
+  {
+    return "queue:" + queue.getName() + ":" + queue.getType() + ":" + queue.isDurable() + ":" + queue.isExclusive() + ":" + queue.isAutoDelete() + ":" + queue.getArguments();
+  }
+
+  private static String bindingKey(RabbitMQQueue queue, RabbitMQExchange exchange)
+  {
+    return "binding:" + queue.getName() + ":" + exchange.getName() + ":";
+  }
+
+  private abstract static class TopologyDeclaration
+  {
+    public abstract void declare(Channel channel) throws IOException;
+
+    public boolean isShareable()
+    {
+      return true;
+    }
+  }
+}
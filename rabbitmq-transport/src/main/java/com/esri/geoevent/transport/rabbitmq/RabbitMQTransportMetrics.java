@@ -0,0 +1,509 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+
+public class RabbitMQTransportMetrics implements RabbitMQTransportMetricsMBean
+{
+  private static final BundleLogger      LOGGER         = BundleLoggerFactory.getLogger(RabbitMQTransportMetrics.class);
+  private static final String            DOMAIN         = "com.esri.geoevent.transport.rabbitmq";
+  private static final AtomicInteger     INSTANCES      = new AtomicInteger();
+  private static final long              NOT_DELIVERED  = Long.MIN_VALUE;
+  private final String                   type;
+  private final int                      id             = INSTANCES.incrementAndGet();
+  // striped counters so concurrent recording never contends on a single cache line
+  private final LongAdder                messages       = new LongAdder();
+  private final LongAdder                bytes          = new LongAdder();
+  private final LongAdder                errors         = new LongAdder();
+  private final LongAdder                drops          = new LongAdder();
+  private final LongAdder                redeliveries   = new LongAdder();
+  private final LongAdder                clockSkewed    = new LongAdder();
+  private final LongAdder                records        = new LongAdder();
+  private final LongAdder                malformed      = new LongAdder();
+  // System.nanoTime() at which the last delivered message was published
+  private volatile long                  lastPublished  = NOT_DELIVERED;
+  // last queue sample, written by the depth probe only
+  private volatile long                  queueDepth     = -1;
+  private volatile int                   localBacklog   = 0;
+  private volatile int                   queueConsumers = 0;
+  private volatile double                ingressRate    = 0;
+  private volatile double                egressRate     = 0;
+  private volatile long                  timeToDrain    = -1;
+  private volatile RabbitMQConsumerRole  consumerRole;
+  private final RabbitMQLatencyHistogram publishLatency = new RabbitMQLatencyHistogram();
+  private final RabbitMQLatencyHistogram handoffLatency = new RabbitMQLatencyHistogram();
+  private final RabbitMQLatencyHistogram receiveLatency = new RabbitMQLatencyHistogram();
+  private final RabbitMQLatencyHistogram transitLatency = new RabbitMQLatencyHistogram();
+  private volatile RabbitMQConnectionTimeline timeline;
+  private ObjectName                     objectName;
+  private ObjectName                     controlName;
+
+  public RabbitMQTransportMetrics(String type)
+  {
+    this.type = type;
+  }
+
+  public synchronized void register(String name)
+  {
+    register(name, null);
+  }
+
+  // the control bean of the owning transport is registered next to its metrics under the same name and id
+  public synchronized void register(String name, Object control)
+  {
+    unregister();
+    objectName = register(type, name, this);
+    if (control != null)
+      controlName = register(type + "Control", name, control);
+  }
+
+  private ObjectName register(String beanType, String name, Object bean)
+  {
+    try
+    {
+      ObjectName candidate = new ObjectName(DOMAIN + ":type=" + beanType + ",name=" + ObjectName.quote(name != null ? name : "") + ",id=" + id);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(bean, candidate);
+      return candidate;
+    }
+    catch (Exception e)
+    {
+      LOGGER.warn("METRICS_REGISTER_ERROR", name, e.getMessage());
+      return null;
+    }
+  }
+
+  public synchronized void unregister()
+  {
+    unregister(objectName);
+    objectName = null;
+    unregister(controlName);
+    controlName = null;
+  }
+
+  private void unregister(ObjectName name)
+  {
+    if (name != null)
+    {
+      try
+      {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name))
+          server.unregisterMBean(name);
+      }
+      catch (Exception e)
+      {
+        LOGGER.warn("METRICS_UNREGISTER_ERROR", name, e.getMessage());
+      }
+    }
+  }
+
+  public void messageProcessed(int size)
+  {
+    messages.increment();
+    bytes.add(size);
+  }
+
+  public void errorOccurred()
+  {
+    errors.increment();
+  }
+
+  public void messageDropped()
+  {
+    drops.increment();
+  }
+
+  public void messagesDropped(int count)
+  {
+    drops.add(count);
+  }
+
+  public void messageRedelivered()
+  {
+    redeliveries.increment();
+  }
+
+  // records carried inside length prefixed messages, messages still counts the messages themselves
+  public void recordsFramed(int count)
+  {
+    records.add(count);
+  }
+
+  public void malformedFrame()
+  {
+    malformed.increment();
+  }
+
+  public void recordPublish(long nanos)
+  {
+    publishLatency.record(nanos);
+  }
+
+  public void recordHandoff(long nanos)
+  {
+    handoffLatency.record(nanos);
+  }
+
+  public void recordReceive(long nanos)
+  {
+    receiveLatency.record(nanos);
+  }
+
+  public void recordTransit(long nanos)
+  {
+    transitLatency.record(nanos);
+    lastPublished = System.nanoTime() - nanos;
+  }
+
+  public void clockSkewDetected()
+  {
+    clockSkewed.increment();
+  }
+
+  public void recordQueueSample(long depth, int backlog, int consumers, double ingress, double egress, long drainSeconds)
+  {
+    queueDepth = depth;
+    localBacklog = backlog;
+    queueConsumers = consumers;
+    ingressRate = ingress;
+    egressRate = egress;
+    timeToDrain = drainSeconds;
+  }
+
+  // null while the role is not known or the queue has no single active consumer
+  public void recordConsumerRole(RabbitMQConsumerRole role)
+  {
+    consumerRole = role;
+  }
+
+  public RabbitMQConsumerRole getRole()
+  {
+    return consumerRole;
+  }
+
+  public void setTimeline(RabbitMQConnectionTimeline timeline)
+  {
+    this.timeline = timeline;
+  }
+
+  public boolean hasQueueSamples()
+  {
+    return queueDepth >= 0;
+  }
+
+  public boolean hasTransitSamples()
+  {
+    return transitLatency.getCount() > 0;
+  }
+
+  @Override
+  public long getMessages()
+  {
+    return messages.sum();
+  }
+
+  @Override
+  public long getBytes()
+  {
+    return bytes.sum();
+  }
+
+  @Override
+  public long getErrors()
+  {
+    return errors.sum();
+  }
+
+  @Override
+  public long getDrops()
+  {
+    return drops.sum();
+  }
+
+  @Override
+  public long getRedeliveries()
+  {
+    return redeliveries.sum();
+  }
+
+  @Override
+  public long getRecords()
+  {
+    return records.sum();
+  }
+
+  @Override
+  public long getMalformedFrames()
+  {
+    return malformed.sum();
+  }
+
+  @Override
+  public long getPublishLatencyP50()
+  {
+    return publishLatency.getPercentileMicros(50);
+  }
+
+  @Override
+  public long getPublishLatencyP99()
+  {
+    return publishLatency.getPercentileMicros(99);
+  }
+
+  @Override
+  public long getPublishLatencyP999()
+  {
+    return publishLatency.getPercentileMicros(99.9);
+  }
+
+  @Override
+  public long getPublishLatencyMax()
+  {
+    return publishLatency.getMaxMicros();
+  }
+
+  @Override
+  public long getHandoffLatencyP50()
+  {
+    return handoffLatency.getPercentileMicros(50);
+  }
+
+  @Override
+  public long getHandoffLatencyP99()
+  {
+    return handoffLatency.getPercentileMicros(99);
+  }
+
+  @Override
+  public long getHandoffLatencyP999()
+  {
+    return handoffLatency.getPercentileMicros(99.9);
+  }
+
+  @Override
+  public long getHandoffLatencyMax()
+  {
+    return handoffLatency.getMaxMicros();
+  }
+
+  @Override
+  public long getReceiveLatencyP50()
+  {
+    return receiveLatency.getPercentileMicros(50);
+  }
+
+  @Override
+  public long getReceiveLatencyP99()
+  {
+    return receiveLatency.getPercentileMicros(99);
+  }
+
+  @Override
+  public long getReceiveLatencyP999()
+  {
+    return receiveLatency.getPercentileMicros(99.9);
+  }
+
+  @Override
+  public long getReceiveLatencyMax()
+  {
+    return receiveLatency.getMaxMicros();
+  }
+
+  @Override
+  public long getTransitLatencyP50()
+  {
+    return transitLatency.getPercentileMicros(50);
+  }
+
+  @Override
+  public long getTransitLatencyP99()
+  {
+    return transitLatency.getPercentileMicros(99);
+  }
+
+  @Override
+  public long getTransitLatencyP999()
+  {
+    return transitLatency.getPercentileMicros(99.9);
+  }
+
+  @Override
+  public long getTransitLatencyMax()
+  {
+    return transitLatency.getMaxMicros();
+  }
+
+  // age of the last delivered message, which keeps growing while deliveries stall; queues deliver in order, so
+  // no message still waiting is older than that. Nothing is backing up once the last sample found the queue empty.
+  @Override
+  public long getOldestMessageAge()
+  {
+    long published = lastPublished;
+    if (published == NOT_DELIVERED || (queueDepth == 0 && localBacklog == 0))
+      return 0;
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - published);
+  }
+
+  @Override
+  public long getClockSkewed()
+  {
+    return clockSkewed.sum();
+  }
+
+  @Override
+  public long getQueueDepth()
+  {
+    return queueDepth;
+  }
+
+  @Override
+  public int getLocalBacklog()
+  {
+    return localBacklog;
+  }
+
+  @Override
+  public int getQueueConsumers()
+  {
+    return queueConsumers;
+  }
+
+  @Override
+  public String getConsumerRole()
+  {
+    RabbitMQConsumerRole role = consumerRole;
+    return (role != null) ? role.toString() : "";
+  }
+
+  @Override
+  public double getIngressRate()
+  {
+    return ingressRate;
+  }
+
+  @Override
+  public double getEgressRate()
+  {
+    return egressRate;
+  }
+
+  @Override
+  public long getTimeToDrain()
+  {
+    return timeToDrain;
+  }
+
+  @Override
+  public long getOutages()
+  {
+    RabbitMQConnectionTimeline current = timeline;
+    return (current != null) ? current.getOutages() : 0;
+  }
+
+  @Override
+  public long getRecoveries()
+  {
+    RabbitMQConnectionTimeline current = timeline;
+    return (current != null) ? current.getRecoveries() : 0;
+  }
+
+  @Override
+  public long getRecoveryFailures()
+  {
+    RabbitMQConnectionTimeline current = timeline;
+    return (current != null) ? current.getRecoveryFailures() : 0;
+  }
+
+  @Override
+  public long getFailovers()
+  {
+    RabbitMQConnectionTimeline current = timeline;
+    return (current != null) ? current.getFailovers() : 0;
+  }
+
+  @Override
+  public long getMeanTimeToRecovery()
+  {
+    RabbitMQConnectionTimeline current = timeline;
+    return (current != null) ? current.getMeanTimeToRecovery() : -1;
+  }
+
+  @Override
+  public long getLastOutageDuration()
+  {
+    RabbitMQConnectionTimeline current = timeline;
+    return (current != null) ? current.getLastOutageDuration() : -1;
+  }
+
+  @Override
+  public long getLongestOutageDuration()
+  {
+    RabbitMQConnectionTimeline current = timeline;
+    return (current != null) ? current.getLongestOutageDuration() : 0;
+  }
+
+  @Override
+  public long getTotalOutageDuration()
+  {
+    RabbitMQConnectionTimeline current = timeline;
+    return (current != null) ? current.getTotalOutageDuration() : 0;
+  }
+
+  @Override
+  public String[] getConnectionHistory()
+  {
+    RabbitMQConnectionTimeline current = timeline;
+    return (current != null) ? current.getHistory() : new String[0];
+  }
+
+  @Override
+  public void reset()
+  {
+    messages.reset();
+    bytes.reset();
+    errors.reset();
+    drops.reset();
+    redeliveries.reset();
+    records.reset();
+    malformed.reset();
+    publishLatency.reset();
+    handoffLatency.reset();
+    receiveLatency.reset();
+    transitLatency.reset();
+    clockSkewed.reset();
+    lastPublished = NOT_DELIVERED;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+public interface RabbitMQTransportMetricsMBean
+{
+  long getMessages();
+
+  long getBytes();
+
+  long getErrors();
+
+  long getDrops();
+
+  long getRedeliveries();
+
+  long getRecords();
+
+  long getMalformedFrames();
+
+  long getPublishLatencyP50();
+
+  long getPublishLatencyP99();
+
+  long getPublishLatencyP999();
+
+  long getPublishLatencyMax();
+
+  long getHandoffLatencyP50();
+
+  long getHandoffLatencyP99();
+
+  long getHandoffLatencyP999();
+
+  long getHandoffLatencyMax();
+
+  long getReceiveLatencyP50();
+
+  long getReceiveLatencyP99();
+
+  long getReceiveLatencyP999();
+
+  long getReceiveLatencyMax();
+
+  long getTransitLatencyP50();
+
+  long getTransitLatencyP99();
+
+  long getTransitLatencyP999();
+
+  long getTransitLatencyMax();
+
+  long getOldestMessageAge();
+
+  long getClockSkewed();
+
+  long getQueueDepth();
+
+  int getLocalBacklog();
+
+  int getQueueConsumers();
+
+  String getConsumerRole();
+
+  double getIngressRate();
+
+  double getEgressRate();
+
+  long getTimeToDrain();
+
+  long getOutages();
+
+  long getRecoveries();
+
+  long getRecoveryFailures();
+
+  long getFailovers();
+
+  long getMeanTimeToRecovery();
+
+  long getLastOutageDuration();
+
+  long getLongestOutageDuration();
+
+  long getTotalOutageDuration();
+
+  String[] getConnectionHistory();
+
+  void reset();
+}
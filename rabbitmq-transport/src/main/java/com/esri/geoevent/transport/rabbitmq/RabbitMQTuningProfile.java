@@ -0,0 +1,88 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.rabbitmq;
+
+public enum RabbitMQTuningProfile
+{
+  // heartbeat (s), frame max, channel max, TCP_NODELAY, send buffer, receive buffer, connection timeout (ms)
+  Default(60, 0, 0, true, 0, 0, 60000),
+  LowLatencyLAN(10, 131072, 0, true, 0, 0, 5000),
+  HighThroughputWAN(30, 0, 0, true, 4194304, 4194304, 30000),
+  ConstrainedEdge(60, 32768, 64, true, 65536, 65536, 30000);
+
+  private final int     heartbeat;
+  private final int     frameMax;
+  private final int     channelMax;
+  private final boolean tcpNoDelay;
+  private final int     sendBufferSize;
+  private final int     receiveBufferSize;
+  private final int     connectionTimeout;
+
+  private RabbitMQTuningProfile(int heartbeat, int frameMax, int channelMax, boolean tcpNoDelay, int sendBufferSize, int receiveBufferSize, int connectionTimeout)
+  {
+    this.heartbeat = heartbeat;
+    this.frameMax = frameMax;
+    this.channelMax = channelMax;
+    this.tcpNoDelay = tcpNoDelay;
+    this.sendBufferSize = sendBufferSize;
+    this.receiveBufferSize = receiveBufferSize;
+    this.connectionTimeout = connectionTimeout;
+  }
+
+  public int getHeartbeat()
+  {
+    return heartbeat;
+  }
+
+  public int getFrameMax()
+  {
+    return frameMax;
+  }
+
+  public int getChannelMax()
+  {
+    return channelMax;
+  }
+
+  public boolean isTcpNoDelay()
+  {
+    return tcpNoDelay;
+  }
+
+  public int getSendBufferSize()
+  {
+    return sendBufferSize;
+  }
+
+  public int getReceiveBufferSize()
+  {
+    return receiveBufferSize;
+  }
+
+  public int getConnectionTimeout()
+  {
+    return connectionTimeout;
+  }
+}